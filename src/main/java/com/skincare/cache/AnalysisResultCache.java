@@ -0,0 +1,69 @@
+package com.skincare.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.skincare.dto.IngredientAnalysisResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Bounded in-process cache of ChatGPT analysis results.
+ * Entries are keyed by a SHA-256 hash of the normalized ingredient list, the model and the prompt version,
+ * so a prompt or model change never serves stale answers.
+ */
+@Component
+@Slf4j
+public class AnalysisResultCache {
+
+    private final Cache<String, IngredientAnalysisResult> cache;
+
+    public AnalysisResultCache(
+            @Value("${chatgpt.cache.max-size:10000}") long maxSize,
+            @Value("${chatgpt.cache.ttl:6h}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chatgpt.analysis");
+        log.info("Analysis result cache initialized with maxSize={} ttl={}", maxSize, ttl);
+    }
+
+    public String keyFor(String normalizedIngredients, String model, String promptVersion) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(promptVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalizedIngredients.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public IngredientAnalysisResult get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, IngredientAnalysisResult result) {
+        cache.put(key, result);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
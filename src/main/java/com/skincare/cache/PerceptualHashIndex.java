@@ -0,0 +1,134 @@
+package com.skincare.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps perceptual hashes of previously processed label images to their extracted ingredient lists.
+ * Photos of the same bottle are byte-different but hash within a small Hamming distance, so a near
+ * match can reuse the earlier extraction instead of paying for another vision call.
+ */
+@Component
+@Slf4j
+public class PerceptualHashIndex {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    // Upper bound on pixels sampled per hash cell, keeps hashing cheap on 12MP photos
+    private static final int MAX_SAMPLES_PER_AXIS = 32;
+
+    private final Cache<Long, String> extractions;
+    private final int maxDistance;
+    private final Counter exactHits;
+    private final Counter nearHits;
+    private final Counter misses;
+
+    public PerceptualHashIndex(
+            @Value("${vision.phash.max-entries:50000}") long maxEntries,
+            @Value("${vision.phash.ttl:7d}") Duration ttl,
+            @Value("${vision.phash.max-distance:6}") int maxDistance,
+            MeterRegistry meterRegistry
+    ) {
+        this.extractions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.maxDistance = maxDistance;
+        CaffeineCacheMetrics.monitor(meterRegistry, extractions, "vision.phash");
+        this.exactHits = meterRegistry.counter("vision.phash.lookups", "result", "exact");
+        this.nearHits = meterRegistry.counter("vision.phash.lookups", "result", "near");
+        this.misses = meterRegistry.counter("vision.phash.lookups", "result", "miss");
+    }
+
+    /**
+     * Returns the ingredients extracted from the closest indexed image within the configured Hamming distance.
+     */
+    public Optional<String> lookup(long hash) {
+        String exact = extractions.getIfPresent(hash);
+        if (exact != null) {
+            exactHits.increment();
+            return Optional.of(exact);
+        }
+
+        // Linear scan: a bounded index of 64-bit hashes compares in microseconds
+        Long bestHash = null;
+        int bestDistance = maxDistance + 1;
+        for (Map.Entry<Long, String> entry : extractions.asMap().entrySet()) {
+            int distance = Long.bitCount(entry.getKey() ^ hash);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestHash = entry.getKey();
+            }
+        }
+        if (bestHash != null) {
+            String near = extractions.getIfPresent(bestHash);
+            if (near != null) {
+                nearHits.increment();
+                log.debug("Perceptual hash {} matched {} at distance {}", Long.toHexString(hash), Long.toHexString(bestHash), bestDistance);
+                return Optional.of(near);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(long hash, String ingredients) {
+        extractions.put(hash, ingredients);
+    }
+
+    /**
+     * 64-bit difference hash (dHash): the image is reduced to a 9x8 luminance grid and each bit records
+     * whether a cell is brighter than its right-hand neighbour. Robust to scaling, re-encoding and
+     * small lighting changes.
+     */
+    public static long differenceHash(BufferedImage image) {
+        double[][] luminance = new double[HASH_HEIGHT][HASH_WIDTH];
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        for (int row = 0; row < HASH_HEIGHT; row++) {
+            int y0 = row * height / HASH_HEIGHT;
+            int y1 = Math.max(y0 + 1, (row + 1) * height / HASH_HEIGHT);
+            int yStep = Math.max(1, (y1 - y0) / MAX_SAMPLES_PER_AXIS);
+            for (int col = 0; col < HASH_WIDTH; col++) {
+                int x0 = col * width / HASH_WIDTH;
+                int x1 = Math.max(x0 + 1, (col + 1) * width / HASH_WIDTH);
+                int xStep = Math.max(1, (x1 - x0) / MAX_SAMPLES_PER_AXIS);
+
+                double sum = 0;
+                int samples = 0;
+                for (int y = y0; y < y1 && y < height; y += yStep) {
+                    for (int x = x0; x < x1 && x < width; x += xStep) {
+                        int rgb = image.getRGB(x, y);
+                        sum += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                        samples++;
+                    }
+                }
+                luminance[row][col] = samples == 0 ? 0 : sum / samples;
+            }
+        }
+
+        long hash = 0;
+        for (int row = 0; row < HASH_HEIGHT; row++) {
+            for (int col = 0; col < HASH_WIDTH - 1; col++) {
+                hash <<= 1;
+                if (luminance[row][col] > luminance[row][col + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,34 @@
+package com.skincare.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Execution mode for blocking work (JDBC, BCrypt, blocking OpenAI calls).
+ * With {@code spring.threads.virtual.enabled=true} Tomcat request handling and this scheduler both run
+ * on virtual threads; otherwise a bounded elastic pool of platform threads is used.
+ */
+@Configuration
+@Slf4j
+public class ExecutionConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${execution.blocking.thread-cap:64}") int threadCap,
+            @Value("${execution.blocking.queued-task-cap:10000}") int queuedTaskCap
+    ) {
+        if (virtualThreads) {
+            log.info("Blocking work runs on virtual threads");
+            return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "blocking-virtual");
+        }
+        log.info("Blocking work runs on a bounded elastic pool of {} platform threads", threadCap);
+        return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "blocking");
+    }
+}
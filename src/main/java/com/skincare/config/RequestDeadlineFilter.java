@@ -0,0 +1,60 @@
+package com.skincare.config;
+
+import com.skincare.util.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Stamps every inbound request with a {@link Deadline}. Clients may ask for a shorter one with the
+ * {@value #TIMEOUT_HEADER} header ("5s", "800ms", or plain milliseconds); it is always capped at
+ * {@code chatgpt.resilience.request-deadline}, which stays below the async request timeout so upstream
+ * calls give up before the servlet container does.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration maxDeadline;
+
+    public RequestDeadlineFilter(@Value("${chatgpt.resilience.request-deadline:140s}") Duration maxDeadline) {
+        this.maxDeadline = maxDeadline;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        request.setAttribute(Deadline.REQUEST_ATTRIBUTE, Deadline.after(requestedTimeout(request)));
+        filterChain.doFilter(request, response);
+    }
+
+    private Duration requestedTimeout(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (!StringUtils.hasText(header)) {
+            return maxDeadline;
+        }
+        try {
+            Duration requested = DurationStyle.detectAndParse(header.trim());
+            return requested.isNegative() || requested.compareTo(maxDeadline) > 0 ? maxDeadline : requested;
+        } catch (IllegalArgumentException e) {
+            return maxDeadline;
+        }
+    }
+}
@@ -1,16 +1,72 @@
 package com.skincare.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.filter.ForwardedHeaderFilter;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
 
 @Configuration
 public class WebClientConfig {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAiConnectionProvider(
+            @Value("${chatgpt.http.max-connections:50}") int maxConnections,
+            @Value("${chatgpt.http.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${chatgpt.http.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+            @Value("${chatgpt.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${chatgpt.http.max-life-time:5m}") Duration maxLifeTime
+    ) {
+        // Named pool so its reactor.netty.connection.provider.* metrics are tagged "openai"
+        return ConnectionProvider.builder("openai")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Shared, pre-built client for the OpenAI API. Connections are pooled and kept alive
+     * across requests, and HTTP/2 is negotiated via ALPN when the server offers it.
+     */
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient openAiWebClient(
+            ConnectionProvider openAiConnectionProvider,
+            @Value("${chatgpt.api.url}") String chatGPTApiUrl,
+            @Value("${chatgpt.api.key}") String chatGPTApiKey,
+            @Value("${chatgpt.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${chatgpt.http.response-timeout:60s}") Duration responseTimeout,
+            @Value("${chatgpt.http.max-in-memory-size:16MB}") DataSize maxInMemorySize
+    ) {
+        HttpClient httpClient = HttpClient.create(openAiConnectionProvider)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .metrics(true, Function.identity());
+
+        return WebClient.builder()
+                .baseUrl(chatGPTApiUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + chatGPTApiKey)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxInMemorySize.toBytes()))
+                .build();
     }
 
     @Bean
@@ -0,0 +1,63 @@
+package com.skincare.controller;
+
+import com.skincare.dto.TokenUsageSummary;
+import com.skincare.repository.TokenUsageRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/usage")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "Operational endpoints for administrators")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AdminUsageController {
+
+    private final TokenUsageRepository usageRepository;
+
+    @Operation(
+            summary = "OpenAI Token Usage",
+            description = "Input, cached input and output tokens, call counts and average latency per user, endpoint, " +
+                    "model, prompt version and operation over the last hours, largest consumers first. The most recent minute may not be flushed yet"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Usage summary",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = TokenUsageSummary.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Caller is not an administrator",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @GetMapping
+    public ResponseEntity<List<TokenUsageSummary>> getUsage(
+            @Parameter(description = "Reporting period in hours, counted back from now")
+            @RequestParam(defaultValue = "24") int hours,
+            @Parameter(description = "Only report this user")
+            @RequestParam(required = false) String username
+    ) {
+        LocalDateTime since = LocalDateTime.now().minusHours(Math.max(1, hours));
+        return ResponseEntity.ok(usageRepository.summarizeSince(since, username));
+    }
+}
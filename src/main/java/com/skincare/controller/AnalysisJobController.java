@@ -0,0 +1,192 @@
+package com.skincare.controller;
+
+import com.skincare.dto.AnalysisJobResponseDto;
+import com.skincare.dto.IngredientAnalysisRequest;
+import com.skincare.model.AnalysisJob;
+import com.skincare.security.AuthenticatedUser;
+import com.skincare.security.RateLimiter;
+import com.skincare.service.AnalysisJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/ingredients/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Analysis Jobs", description = "Asynchronous, job-based ingredient analysis")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AnalysisJobController {
+
+    private final AnalysisJobService jobService;
+    private final RateLimiter rateLimiter;
+    private final Scheduler blockingScheduler;
+
+    @Operation(
+            summary = "Submit Text Analysis Job",
+            description = "Queue an ingredient list for analysis. Returns immediately with a job id to poll or subscribe to"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Job accepted",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AnalysisJobResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Queue is full, retry later",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @PostMapping
+    public ResponseEntity<AnalysisJobResponseDto> submitTextJob(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestBody IngredientAnalysisRequest request
+    ) {
+        // Charged at submission: the job is what later calls OpenAI, on behalf of this user
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE, principal);
+        AnalysisJob job = jobService.submitText(
+                principal.reference(),
+                request.getIngredients(),
+                request.getProductName()
+        );
+        return accepted(job);
+    }
+
+    @Operation(
+            summary = "Submit Image Analysis Job",
+            description = "Queue a product label image for ingredient extraction and analysis. Returns immediately with a job id"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Job accepted",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AnalysisJobResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Queue is full, retry later",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @PostMapping(value = "/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AnalysisJobResponseDto> submitImageJob(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @Parameter(description = "Image file of the skincare product label (JPEG, PNG, etc.)", required = true)
+            @RequestParam("image") MultipartFile image,
+            @Parameter(description = "Optional product name for better analysis context", required = false)
+            @RequestParam(value = "productName", required = false) String productName
+    ) throws IOException {
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE_IMAGE, principal);
+        AnalysisJob job = jobService.submitImage(
+                principal.reference(),
+                image.getBytes(),
+                image.getContentType(),
+                productName
+        );
+        return accepted(job);
+    }
+
+    @Operation(
+            summary = "Get Job Status",
+            description = "Poll a job; once completed the response includes the saved analysis"
+    )
+    @GetMapping("/{jobId}")
+    public ResponseEntity<AnalysisJobResponseDto> getJob(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable Long jobId
+    ) {
+        return jobService.describeJob(principal.getId(), jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Subscribe to Job Status",
+            description = "Server-Sent Events stream of job status updates, closed once the job completes or fails"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Event stream of job status changes",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No such job for this user",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnalysisJobResponseDto>> subscribeToJob(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable Long jobId
+    ) {
+        Long userId = principal.getId();
+        // Checked before the event stream is committed, while a 404 can still be sent
+        AnalysisJobResponseDto initial = jobService.findJobStatus(userId, jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found"));
+
+        // Each tick reads only the status projection; the analysis is loaded once, when the job completes
+        return Flux.interval(Duration.ofSeconds(1), Duration.ofSeconds(1))
+                .concatMap(tick -> Mono.fromCallable(() -> jobService.findJobStatus(userId, jobId))
+                        .subscribeOn(blockingScheduler))
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get)
+                .startWith(initial)
+                .distinctUntilChanged(AnalysisJobResponseDto::getStatus)
+                .takeUntil(AnalysisJobResponseDto::isFinished)
+                .concatMap(job -> job.isFinished()
+                        ? Mono.fromCallable(() -> jobService.describeJob(userId, jobId).orElse(job)).subscribeOn(blockingScheduler)
+                        : Mono.just(job))
+                .map(job -> ServerSentEvent.builder(job).event(job.getStatus().name().toLowerCase()).build());
+    }
+
+    private ResponseEntity<AnalysisJobResponseDto> accepted(AnalysisJob job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/ingredients/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(AnalysisJobResponseDto.from(job));
+    }
+}
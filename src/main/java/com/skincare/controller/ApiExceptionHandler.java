@@ -0,0 +1,74 @@
+package com.skincare.controller;
+
+import com.skincare.security.PasswordHashingBusyException;
+import com.skincare.security.RateLimitExceededException;
+import com.skincare.service.OpenAIOverloadedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Admission-control rejections shared by all controllers. Both tell the client when to come back.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ApiExceptionHandler {
+
+    /**
+     * Requests over the user's own allowance.
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, String>> handleRateLimited(RateLimitExceededException e) {
+        log.debug("Rate limited: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(Map.of("message", "Too many requests, please retry later"));
+    }
+
+    /**
+     * Requests shed by the OpenAI concurrency limiter, before or while waiting for a call slot.
+     */
+    @ExceptionHandler(OpenAIOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleOverloaded(OpenAIOverloadedException e) {
+        log.warn("Shedding analysis request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(Map.of("message", "Analysis capacity is exhausted, please retry later"));
+    }
+
+    /**
+     * Logins and signups turned away because the password hashing pool is saturated.
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, String>> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        log.warn("Shedding authentication request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(Map.of("message", "Too many sign-ins in progress, please retry later"));
+    }
+
+    /**
+     * The authentication provider wraps failures while loading the user, including the dummy hash it
+     * computes for unknown usernames.
+     */
+    @ExceptionHandler(InternalAuthenticationServiceException.class)
+    public ResponseEntity<Map<String, String>> handleAuthenticationServiceFailure(InternalAuthenticationServiceException e) {
+        if (e.getCause() instanceof PasswordHashingBusyException busy) {
+            return handlePasswordHashingBusy(busy);
+        }
+        throw e;
+    }
+
+    private static String retryAfterSeconds(Duration retryAfter) {
+        // Retry-After is whole seconds; round up so clients do not come back too early
+        long seconds = retryAfter.toSeconds() + (retryAfter.toNanosPart() > 0 ? 1 : 0);
+        return String.valueOf(Math.max(1, seconds));
+    }
+}
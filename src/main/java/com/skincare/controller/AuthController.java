@@ -2,16 +2,22 @@ package com.skincare.controller;
 
 import com.skincare.dto.AuthRequest;
 import com.skincare.dto.SignupRequest;
+import com.skincare.security.AuthenticatedUser;
+import com.skincare.security.ClientAddressFilter;
+import com.skincare.security.RateLimiter;
 import com.skincare.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -23,6 +29,7 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final RateLimiter rateLimiter;
 
     @Operation(
             summary = "User Registration",
@@ -45,6 +52,11 @@ public class AuthController {
                     responseCode = "400",
                     description = "Invalid request data or user already exists",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Password hashing is saturated; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
             )
     })
     @PostMapping("/signup")
@@ -83,6 +95,16 @@ public class AuthController {
                     responseCode = "401",
                     description = "Invalid credentials",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many login attempts from this client; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Password hashing is saturated; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
             )
     })
     @PostMapping("/login")
@@ -95,8 +117,33 @@ public class AuthController {
                             schema = @Schema(implementation = AuthRequest.class)
                     )
             )
-            @RequestBody AuthRequest request) {
+            @RequestBody AuthRequest request,
+            @Parameter(hidden = true) HttpServletRequest httpRequest) {
+        // Limited per client, per attempted username from that client and per username overall. The client
+        // is the hop appended by the trusted proxy, not the spoofable leftmost X-Forwarded-For entry
+        rateLimiter.consumeLogin(request.getUsername(), ClientAddressFilter.clientAddress(httpRequest));
         String token = authService.login(request);
         return ResponseEntity.ok(Map.of("token", token, "message", "Login successful"));
     }
+
+    @Operation(
+            summary = "Log Out Everywhere",
+            description = "Revoke every token issued to the authenticated user, including the one used for this request"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "All tokens revoked; log in again for a new one"
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized - Invalid or missing JWT token",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutAll(@Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal) {
+        authService.revokeTokens(principal.getId());
+        return ResponseEntity.noContent().build();
+    }
 }
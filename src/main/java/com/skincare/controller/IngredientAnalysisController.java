@@ -1,10 +1,22 @@
 package com.skincare.controller;
 
+import com.skincare.dto.AnalysisHistoryCursor;
+import com.skincare.dto.AnalysisHistoryPage;
+import com.skincare.dto.BatchAnalysisItemResult;
+import com.skincare.dto.BatchAnalysisRequest;
 import com.skincare.dto.IngredientAnalysisRequest;
 import com.skincare.dto.IngredientAnalysisResponseDto;
-import com.skincare.model.IngredientAnalysis;
+import com.skincare.service.AnalysisHistoryService;
+import com.skincare.service.BatchAnalysisService;
 import com.skincare.service.IngredientAnalysisService;
+import com.skincare.security.AuthenticatedUser;
+import com.skincare.security.RateLimiter;
+import com.skincare.service.OpenAIConcurrencyLimiter;
+import com.skincare.service.OpenAIOverloadedException;
+import com.skincare.service.OpenAIResilience;
 import com.skincare.service.OpenAIVisionService;
+import com.skincare.service.TokenUsageRecorder;
+import com.skincare.util.Deadline;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,17 +25,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/ingredients")
@@ -34,11 +52,18 @@ import java.util.List;
 public class IngredientAnalysisController {
 
     private final IngredientAnalysisService analysisService;
+    private final AnalysisHistoryService historyService;
     private final OpenAIVisionService visionService;
+    private final BatchAnalysisService batchAnalysisService;
+    private final OpenAIConcurrencyLimiter concurrencyLimiter;
+    private final OpenAIResilience resilience;
+    private final TokenUsageRecorder usageRecorder;
+    private final RateLimiter rateLimiter;
 
     @Operation(
             summary = "Analyze Ingredients from Text",
-            description = "Analyze a list of ingredients provided as text and get safety analysis, scores, and recommendations"
+            description = "Analyze a list of ingredients provided as text and get safety analysis, scores, and recommendations. " +
+                    "Set \"fast\" to answer instantly from the local ingredient dictionary without calling OpenAI"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -58,11 +83,21 @@ public class IngredientAnalysisController {
                     responseCode = "500",
                     description = "Internal server error during analysis",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Analysis capacity exhausted; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
             )
     })
     @PostMapping("/analyze")
-    public ResponseEntity<IngredientAnalysisResponseDto> analyzeIngredient(
-            @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails,
+    public Mono<ResponseEntity<IngredientAnalysisResponseDto>> analyzeIngredient(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Ingredient analysis request containing ingredients list and product name",
                     required = true,
@@ -72,13 +107,123 @@ public class IngredientAnalysisController {
                     )
             )
             @RequestBody IngredientAnalysisRequest request
-    ) throws IOException {
-        IngredientAnalysis analysis = analysisService.analyzeIngredient(
-                userDetails.getUsername(),
-                request.getIngredients(),
-                request.getProductName()
-        );
-        return ResponseEntity.ok(convertToDto(analysis));
+    ) {
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE, principal);
+        if (!request.isFast()) {
+            concurrencyLimiter.rejectIfSaturated();
+        }
+        // Returned asynchronously so the servlet thread is released while the LLM call is outstanding
+        return analysisService.analyzeIngredientAsync(
+                        principal.reference(),
+                        request.getIngredients(),
+                        request.getProductName(),
+                        request.isFast()
+                )
+                .map(analysis -> ResponseEntity.ok(IngredientAnalysisResponseDto.from(analysis)));
+    }
+
+    @Operation(
+            summary = "Analyze a Batch of Products",
+            description = "Analyze many ingredient lists in one request. Identical items are analyzed once; results are " +
+                    "streamed back as newline-delimited JSON, one line per submitted item, in completion order"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream of per-item results",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = BatchAnalysisItemResult.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Empty or oversized batch",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized - Invalid or missing JWT token",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @PostMapping(value = "/analyze/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchAnalysisItemResult> analyzeBatch(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @Valid @RequestBody BatchAnalysisRequest request
+    ) {
+        // Charged one batch token per distinct item, since that is how many OpenAI calls the batch makes
+        BatchAnalysisService.BatchPlan plan = batchAnalysisService.plan(request.getItems());
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE_BATCH, principal, plan.distinctItems());
+        concurrencyLimiter.rejectIfSaturated();
+        return batchAnalysisService.analyzeBatch(principal.reference(), plan);
+    }
+
+    @Operation(
+            summary = "Stream Ingredient Analysis",
+            description = "Analyze a list of ingredients and receive results as Server-Sent Events: one 'ingredient' event per " +
+                    "classified ingredient as soon as it is available, then a 'summary' event with the overall rating and " +
+                    "summary, then a 'result' event with the saved analysis. If the analysis fails after ingredients were sent, " +
+                    "the stream ends with an 'error' event instead and nothing is saved"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Event stream of analysis results",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized - Invalid or missing JWT token",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @PostMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamIngredientAnalysis(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Ingredient analysis request containing ingredients list and product name",
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = IngredientAnalysisRequest.class)
+                    )
+            )
+            @RequestBody IngredientAnalysisRequest request
+    ) {
+        // Checked before the event stream is committed, while a 429 or 503 can still be sent
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE, principal);
+        concurrencyLimiter.rejectIfSaturated();
+        return analysisService.streamAnalysis(
+                        principal.reference(),
+                        request.getIngredients(),
+                        request.getProductName()
+                )
+                .concatMap(event -> {
+                    if (event.isFailed()) {
+                        return Flux.just(ServerSentEvent.<Object>builder(Map.of("message", event.getError())).event("error").build());
+                    }
+                    if (!event.isCompleted()) {
+                        return Flux.just(ServerSentEvent.<Object>builder(event.getIngredient()).event("ingredient").build());
+                    }
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("overall_rating", event.getResult().getOverall_rating());
+                    summary.put("summary", event.getResult().getSummary());
+                    return Flux.just(
+                            ServerSentEvent.<Object>builder(summary).event("summary").build(),
+                            ServerSentEvent.<Object>builder(IngredientAnalysisResponseDto.from(event.getAnalysis())).event("result").build()
+                    );
+                });
     }
 
     @Operation(
@@ -108,11 +253,21 @@ public class IngredientAnalysisController {
                     responseCode = "500",
                     description = "Internal server error during image analysis",
                     content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Too many requests for this user; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Analysis capacity exhausted; retry after the number of seconds in Retry-After",
+                    content = @Content(mediaType = "application/json")
             )
     })
     @PostMapping(value = "/analyze-image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<IngredientAnalysisResponseDto> analyzeIngredientFromImage(
-            @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails,
+    public Mono<ResponseEntity<IngredientAnalysisResponseDto>> analyzeIngredientFromImage(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
             @Parameter(
                     description = "Image file of the skincare product label (JPEG, PNG, etc.)",
                     required = true
@@ -124,40 +279,50 @@ public class IngredientAnalysisController {
             )
             @RequestParam(value = "productName", required = false) String productName
     ) throws IOException {
-        try {
-            log.info("Received productName: {}", productName);
-            
-            // Extract ingredients from image using OpenAI Vision
-            String extractedIngredients = visionService.extractIngredientsFromImage(image);
-            
-            // Analyze the extracted ingredients using existing service
-            IngredientAnalysis analysis = analysisService.analyzeIngredient(
-                    userDetails.getUsername(),
-                    extractedIngredients,
-                    productName
-            );
-            
-            return ResponseEntity.ok(convertToDto(analysis));
-            
-        } catch (Exception e) {
-            log.error("Error in image analysis: {}", e.getMessage(), e);
-            return ResponseEntity.status(500).body(null);
-        }
+        log.info("Received productName: {}", productName);
+        rateLimiter.consume(RateLimiter.Scope.ANALYZE_IMAGE, principal);
+        concurrencyLimiter.rejectIfSaturated();
+
+        // Both calls share the request's deadline and are charged to this user; the analysis is assembled on
+        // whichever thread finished the vision call, so both travel in the Reactor context
+        Deadline deadline = resilience.currentDeadline();
+        TokenUsageRecorder.Attribution attribution = usageRecorder.currentAttribution();
+
+        // Extract ingredients from image using OpenAI Vision, then analyze them with the existing pipeline
+        return visionService.extractIngredientsFromImageAsync(image)
+                .flatMap(extractedIngredients -> analysisService.analyzeIngredientAsync(
+                        principal.reference(),
+                        extractedIngredients,
+                        productName
+                ))
+                .map(analysis -> ResponseEntity.ok(IngredientAnalysisResponseDto.from(analysis)))
+                .onErrorResume(e -> !(e instanceof OpenAIOverloadedException), e -> {
+                    log.error("Error in image analysis: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(500).body(null));
+                })
+                .contextWrite(OpenAIResilience.withDeadline(deadline))
+                .contextWrite(TokenUsageRecorder.withAttribution(attribution));
     }
 
     @Operation(
             summary = "Get Analysis History",
-            description = "Retrieve the analysis history for the authenticated user"
+            description = "Retrieve the analysis history for the authenticated user, newest first, one page at a time. " +
+                    "Pass the returned nextCursor to get the following page; it is absent on the last page"
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Analysis history retrieved successfully",
+                    description = "Analysis history page retrieved successfully",
                     content = @Content(
                             mediaType = "application/json",
-                            schema = @Schema(implementation = IngredientAnalysisResponseDto.class)
+                            schema = @Schema(implementation = AnalysisHistoryPage.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid cursor",
+                    content = @Content(mediaType = "application/json")
+            ),
             @ApiResponse(
                     responseCode = "401",
                     description = "Unauthorized - Invalid or missing JWT token",
@@ -165,25 +330,25 @@ public class IngredientAnalysisController {
             )
     })
     @GetMapping("/history")
-    public ResponseEntity<List<IngredientAnalysisResponseDto>> getAnalysisHistory(
-            @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails
+    public ResponseEntity<AnalysisHistoryPage> getAnalysisHistory(
+            @Parameter(hidden = true) @AuthenticationPrincipal AuthenticatedUser principal,
+            @Parameter(description = "Page size (defaults to 20, capped at 100)", required = false)
+            @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "nextCursor of the previous page; omit for the newest analyses", required = false)
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Set to false for list views: each item is returned without its safetyAnalysis", required = false)
+            @RequestParam(value = "includeAnalysis", defaultValue = "true") boolean includeAnalysis
     ) {
-        List<IngredientAnalysis> analyses = analysisService.getUserAnalyses(userDetails.getUsername());
-        List<IngredientAnalysisResponseDto> dtos = analyses.stream()
-                .map(this::convertToDto)
-                .toList();
-        return ResponseEntity.ok(dtos);
-    }
-    
-    private IngredientAnalysisResponseDto convertToDto(IngredientAnalysis analysis) {
-        IngredientAnalysisResponseDto dto = new IngredientAnalysisResponseDto();
-        dto.setId(analysis.getId());
-        dto.setUsername(analysis.getUser().getUsername());
-        dto.setIdentifiedIngredients(analysis.getIdentifiedIngredients());
-        dto.setSafetyAnalysis(analysis.getSafetyAnalysis());
-        dto.setSafetyScore(analysis.getSafetyScore());
-        dto.setAnalysisDate(analysis.getAnalysisDate());
-        dto.setProductName(analysis.getProductName());
-        return dto;
+        AnalysisHistoryCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = AnalysisHistoryCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        // The page is read in full and its connection released before the response is written
+        return ResponseEntity.ok(historyService.page(
+                principal.getId(), principal.getUsername(), after, historyService.pageSize(size), includeAnalysis));
     }
 }
@@ -0,0 +1,36 @@
+package com.skincare.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's history: the analysis date and id of the last row of a page. Handed to clients
+ * as an opaque URL-safe token.
+ */
+public record AnalysisHistoryCursor(LocalDateTime analysisDate, Long id) {
+
+    public String encode() {
+        String raw = analysisDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException for a token this class did not produce
+     */
+    public static AnalysisHistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed history cursor");
+            }
+            return new AnalysisHistoryCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed history cursor", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.skincare.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One page of analysis history, newest first. {@code nextCursor} is absent on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AnalysisHistoryPage(List<IngredientAnalysisResponseDto> items, String nextCursor) {
+}
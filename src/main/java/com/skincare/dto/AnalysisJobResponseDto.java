@@ -0,0 +1,61 @@
+package com.skincare.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.skincare.model.AnalysisJob;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class AnalysisJobResponseDto {
+    private Long id;
+    private AnalysisJob.Type type;
+    private AnalysisJob.Status status;
+    private String productName;
+    private int attempts;
+    private String errorMessage;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime completedAt;
+    private IngredientAnalysisResponseDto analysis; // Present once the job has completed
+
+    /**
+     * Constructor used by the JPQL status projection; the image and the analysis are not read.
+     */
+    public AnalysisJobResponseDto(Long id, AnalysisJob.Type type, AnalysisJob.Status status, String productName,
+                                  int attempts, String errorMessage, LocalDateTime createdAt, LocalDateTime completedAt) {
+        this.id = id;
+        this.type = type;
+        this.status = status;
+        this.productName = productName;
+        this.attempts = attempts;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == AnalysisJob.Status.COMPLETED || status == AnalysisJob.Status.FAILED;
+    }
+
+    public static AnalysisJobResponseDto from(AnalysisJob job) {
+        AnalysisJobResponseDto dto = new AnalysisJobResponseDto();
+        dto.setId(job.getId());
+        dto.setType(job.getType());
+        dto.setStatus(job.getStatus());
+        dto.setProductName(job.getProductName());
+        dto.setAttempts(job.getAttempts());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setCompletedAt(job.getCompletedAt());
+        if (job.getAnalysis() != null) {
+            dto.setAnalysis(IngredientAnalysisResponseDto.from(job.getAnalysis()));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,14 @@
+package com.skincare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchAnalysisItemResult {
+    private int index; // Position of the item in the submitted batch
+    private IngredientAnalysisResponseDto analysis;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.skincare.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchAnalysisRequest {
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<IngredientAnalysisRequest> items;
+}
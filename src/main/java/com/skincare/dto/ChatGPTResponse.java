@@ -25,10 +25,34 @@ public class ChatGPTResponse {
         private String content;
     }
 
+    /**
+     * Token usage of one call. The Responses API reports input/output tokens (with cached input tokens
+     * in the details); the Chat Completions API reports prompt/completion tokens.
+     */
     @Data
     public static class Usage {
         private int prompt_tokens;
         private int completion_tokens;
         private int total_tokens;
+        private int input_tokens;
+        private int output_tokens;
+        private InputTokensDetails input_tokens_details;
+
+        public int inputTokens() {
+            return input_tokens > 0 ? input_tokens : prompt_tokens;
+        }
+
+        public int outputTokens() {
+            return output_tokens > 0 ? output_tokens : completion_tokens;
+        }
+
+        public int cachedInputTokens() {
+            return input_tokens_details != null ? input_tokens_details.getCached_tokens() : 0;
+        }
+    }
+
+    @Data
+    public static class InputTokensDetails {
+        private int cached_tokens;
     }
 }
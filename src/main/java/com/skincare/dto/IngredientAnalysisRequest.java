@@ -9,4 +9,6 @@ public class IngredientAnalysisRequest {
     private String ingredients;
     
     private String productName; // Optional product name
+
+    private boolean fast; // Optional: answer from the local ingredient dictionary only, without calling OpenAI
 }
@@ -1,10 +1,14 @@
 package com.skincare.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.skincare.model.IngredientAnalysis;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class IngredientAnalysisResponseDto {
     private Long id;
     private String username; // Only username, not full user object
@@ -14,4 +18,44 @@ public class IngredientAnalysisResponseDto {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime analysisDate;
     private String productName;
+
+    /**
+     * Constructor used by the JPQL history projections; the caller fills in the username.
+     */
+    public IngredientAnalysisResponseDto(Long id, String productName, Double safetyScore, LocalDateTime analysisDate,
+                                         String identifiedIngredients, String safetyAnalysis) {
+        this.id = id;
+        this.productName = productName;
+        this.safetyScore = safetyScore;
+        this.analysisDate = analysisDate;
+        this.identifiedIngredients = identifiedIngredients;
+        this.safetyAnalysis = safetyAnalysis;
+    }
+
+    /**
+     * Summary projection without the safety analysis.
+     */
+    public IngredientAnalysisResponseDto(Long id, String productName, Double safetyScore, LocalDateTime analysisDate,
+                                         String identifiedIngredients) {
+        this(id, productName, safetyScore, analysisDate, identifiedIngredients, null);
+    }
+
+    public static IngredientAnalysisResponseDto from(IngredientAnalysis analysis) {
+        return from(analysis, analysis.getUser().getUsername());
+    }
+
+    /**
+     * For analyses already known to belong to {@code username}; their (lazy) user is not loaded.
+     */
+    public static IngredientAnalysisResponseDto from(IngredientAnalysis analysis, String username) {
+        IngredientAnalysisResponseDto dto = new IngredientAnalysisResponseDto();
+        dto.setId(analysis.getId());
+        dto.setUsername(username);
+        dto.setIdentifiedIngredients(analysis.getIdentifiedIngredients());
+        dto.setSafetyAnalysis(analysis.getSafetyAnalysis());
+        dto.setSafetyScore(analysis.getSafetyScore());
+        dto.setAnalysisDate(analysis.getAnalysisDate());
+        dto.setProductName(analysis.getProductName());
+        return dto;
+    }
 }
@@ -0,0 +1,42 @@
+package com.skincare.dto;
+
+import com.skincare.model.IngredientAnalysis;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One step of a streamed analysis: a single classified ingredient, the final result (and, once
+ * persisted, the saved analysis), or a failure that ends the stream after ingredients were sent.
+ */
+@Data
+@AllArgsConstructor
+public class IngredientAnalysisStreamEvent {
+    private IngredientAnalysisResult.IngredientDetail ingredient;
+    private IngredientAnalysisResult result;
+    private IngredientAnalysis analysis;
+    private String error;
+
+    public static IngredientAnalysisStreamEvent ingredient(IngredientAnalysisResult.IngredientDetail ingredient) {
+        return new IngredientAnalysisStreamEvent(ingredient, null, null, null);
+    }
+
+    public static IngredientAnalysisStreamEvent completed(IngredientAnalysisResult result) {
+        return new IngredientAnalysisStreamEvent(null, result, null, null);
+    }
+
+    public static IngredientAnalysisStreamEvent failed(String error) {
+        return new IngredientAnalysisStreamEvent(null, null, null, error);
+    }
+
+    public IngredientAnalysisStreamEvent withAnalysis(IngredientAnalysis analysis) {
+        return new IngredientAnalysisStreamEvent(ingredient, result, analysis, error);
+    }
+
+    public boolean isCompleted() {
+        return result != null;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
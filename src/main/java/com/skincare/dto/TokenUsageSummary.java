@@ -0,0 +1,27 @@
+package com.skincare.dto;
+
+/**
+ * Token usage totals for one user, endpoint, model, prompt version and operation over a reporting period.
+ * Splitting by prompt version shows what a prompt change did to input and cached tokens.
+ */
+public record TokenUsageSummary(
+        String username,
+        String endpoint,
+        String model,
+        String promptVersion,
+        String operation,
+        long calls,
+        long inputTokens,
+        long cachedInputTokens,
+        long outputTokens,
+        long averageLatencyMillis
+) {
+    /**
+     * Constructor used by the JPQL aggregate query: sums arrive boxed and latency as a total.
+     */
+    public TokenUsageSummary(String username, String endpoint, String model, String promptVersion, String operation,
+                             Long calls, Long inputTokens, Long cachedInputTokens, Long outputTokens, Long latencyMillis) {
+        this(username, endpoint, model, promptVersion, operation, calls.longValue(), inputTokens.longValue(),
+                cachedInputTokens.longValue(), outputTokens.longValue(), calls > 0 ? latencyMillis / calls : 0L);
+    }
+}
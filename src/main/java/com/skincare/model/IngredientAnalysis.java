@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ingredient_analyses")
+@Table(name = "ingredient_analyses", indexes = {
+        // Serves the keyset-paginated history: one user's analyses, newest first
+        @Index(name = "idx_ingredient_analyses_user_date_id", columnList = "user_id, analysis_date DESC, id DESC")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,44 @@
+package com.skincare.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ingredient_classifications")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngredientClassification {
+
+    // Normalized (trimmed, lower-case) ingredient name
+    @Id
+    @Column(name = "name", length = 512)
+    private String name;
+
+    @Column(nullable = false, length = 16)
+    private String classification;
+
+    @Column(columnDefinition = "TEXT")
+    private String reason;
+
+    @Column(name = "model")
+    private String model;
+
+    @Column(name = "prompt_version", length = 16)
+    private String promptVersion;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
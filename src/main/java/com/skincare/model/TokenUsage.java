@@ -0,0 +1,66 @@
+package com.skincare.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * OpenAI token usage aggregated over one flush window for a user, endpoint, model and operation.
+ * Rows are append-only; reports sum them over the period of interest.
+ */
+@Entity
+@Table(name = "openai_token_usage", indexes = {
+        @Index(name = "idx_openai_token_usage_window", columnList = "window_end")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "window_start", nullable = false)
+    private LocalDateTime windowStart;
+
+    @Column(name = "window_end", nullable = false)
+    private LocalDateTime windowEnd;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String endpoint;
+
+    @Column(nullable = false)
+    private String model;
+
+    // analysis, analysis_stream or vision
+    @Column(nullable = false, length = 32)
+    private String operation;
+
+    @Column(name = "prompt_version", length = 16)
+    private String promptVersion;
+
+    @Column(nullable = false)
+    private long calls;
+
+    @Column(name = "input_tokens", nullable = false)
+    private long inputTokens;
+
+    @Column(name = "cached_input_tokens", nullable = false)
+    private long cachedInputTokens;
+
+    @Column(name = "output_tokens", nullable = false)
+    private long outputTokens;
+
+    // Sum of call latencies; divide by calls for the average
+    @Column(name = "latency_millis", nullable = false)
+    private long latencyMillis;
+}
@@ -1,6 +1,7 @@
 package com.skincare.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.skincare.service.UserAccountListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserAccountListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -40,6 +42,13 @@ public class User implements UserDetails {
     @Builder.Default
     private Role role = Role.USER;
     
+    // Raised by POST /api/auth/logout-all to revoke every token issued before; null on rows created
+    // before the column existed
+    @JsonIgnore
+    @Column(name = "token_version")
+    @Builder.Default
+    private Integer tokenVersion = 0;
+    
     @JsonIgnore
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -59,6 +68,10 @@ public class User implements UserDetails {
         updatedAt = LocalDateTime.now();
     }
     
+    public int currentTokenVersion() {
+        return tokenVersion == null ? 0 : tokenVersion;
+    }
+    
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(role.name()));
@@ -0,0 +1,49 @@
+package com.skincare.repository;
+
+import com.skincare.dto.AnalysisJobResponseDto;
+import com.skincare.model.AnalysisJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+
+    /**
+     * Locks up to {@code limit} runnable jobs: pending ones whose retry backoff (if any) has elapsed, plus
+     * running ones whose visibility timeout expired. SKIP LOCKED lets several instances poll the same table without handing out a job twice.
+     */
+    @Query(value = """
+            SELECT * FROM analysis_jobs
+            WHERE (status = 'PENDING' AND (visible_at IS NULL OR visible_at <= :now))
+               OR (status = 'RUNNING' AND visible_at < :now)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<AnalysisJob> lockRunnable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query("SELECT j FROM AnalysisJob j JOIN FETCH j.user LEFT JOIN FETCH j.analysis a LEFT JOIN FETCH a.user WHERE j.id = :id")
+    Optional<AnalysisJob> findWithUserById(@Param("id") Long id);
+
+    /**
+     * A job's status and metadata, without the image upload or the analysis; cheap enough to poll.
+     */
+    @Query("""
+            SELECT new com.skincare.dto.AnalysisJobResponseDto(j.id, j.type, j.status, j.productName, j.attempts,
+                   j.errorMessage, j.createdAt, j.completedAt)
+            FROM AnalysisJob j
+            WHERE j.id = :id AND j.user.id = :userId
+            """)
+    Optional<AnalysisJobResponseDto> findStatusById(@Param("userId") Long userId, @Param("id") Long id);
+
+    long countByStatusIn(Collection<AnalysisJob.Status> statuses);
+
+    long countByStatus(AnalysisJob.Status status);
+}
@@ -1,13 +1,65 @@
 package com.skincare.repository;
 
+import com.skincare.dto.IngredientAnalysisResponseDto;
 import com.skincare.model.IngredientAnalysis;
-import com.skincare.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface IngredientAnalysisRepository extends JpaRepository<IngredientAnalysis, Long> {
-    List<IngredientAnalysis> findByUserOrderByAnalysisDateDesc(User user);
+
+    /*
+     * History pages, newest first. Each reads idx_ingredient_analyses_user_date_id in order from the
+     * cursor (a row-value comparison on (analysis_date, id)) and stops after the limit. Rows are selected
+     * straight into DTOs: no entity is hydrated or put in the persistence context, and the user is not
+     * joined. The summary variants leave out the safety_analysis column.
+     */
+
+    @Query("""
+            SELECT new com.skincare.dto.IngredientAnalysisResponseDto(a.id, a.productName, a.safetyScore, a.analysisDate,
+                   a.identifiedIngredients, a.safetyAnalysis)
+            FROM IngredientAnalysis a
+            WHERE a.user.id = :userId
+            ORDER BY a.analysisDate DESC, a.id DESC
+            """)
+    List<IngredientAnalysisResponseDto> findHistory(@Param("userId") Long userId, Limit limit);
+
+    @Query("""
+            SELECT new com.skincare.dto.IngredientAnalysisResponseDto(a.id, a.productName, a.safetyScore, a.analysisDate,
+                   a.identifiedIngredients, a.safetyAnalysis)
+            FROM IngredientAnalysis a
+            WHERE a.user.id = :userId AND (a.analysisDate, a.id) < (:analysisDate, :id)
+            ORDER BY a.analysisDate DESC, a.id DESC
+            """)
+    List<IngredientAnalysisResponseDto> findHistoryBefore(@Param("userId") Long userId,
+                                                          @Param("analysisDate") LocalDateTime analysisDate,
+                                                          @Param("id") Long id,
+                                                          Limit limit);
+
+    @Query("""
+            SELECT new com.skincare.dto.IngredientAnalysisResponseDto(a.id, a.productName, a.safetyScore, a.analysisDate,
+                   a.identifiedIngredients)
+            FROM IngredientAnalysis a
+            WHERE a.user.id = :userId
+            ORDER BY a.analysisDate DESC, a.id DESC
+            """)
+    List<IngredientAnalysisResponseDto> findHistorySummary(@Param("userId") Long userId, Limit limit);
+
+    @Query("""
+            SELECT new com.skincare.dto.IngredientAnalysisResponseDto(a.id, a.productName, a.safetyScore, a.analysisDate,
+                   a.identifiedIngredients)
+            FROM IngredientAnalysis a
+            WHERE a.user.id = :userId AND (a.analysisDate, a.id) < (:analysisDate, :id)
+            ORDER BY a.analysisDate DESC, a.id DESC
+            """)
+    List<IngredientAnalysisResponseDto> findHistorySummaryBefore(@Param("userId") Long userId,
+                                                                 @Param("analysisDate") LocalDateTime analysisDate,
+                                                                 @Param("id") Long id,
+                                                                 Limit limit);
 }
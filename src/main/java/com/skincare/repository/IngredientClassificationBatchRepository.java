@@ -0,0 +1,69 @@
+package com.skincare.repository;
+
+import com.skincare.model.IngredientClassification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Upserts for {@link IngredientClassification}. {@code saveAll} on an assigned id selects every row
+ * before writing it, and two writers inserting the same new name make one of them fail its whole batch
+ * on the duplicate key. Here each batch is a single JDBC round trip of {@code INSERT ... ON CONFLICT}
+ * statements, so concurrent answers for the same ingredient simply overwrite each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngredientClassificationBatchRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO ingredient_classifications
+                (name, classification, reason, model, prompt_version, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (name) DO UPDATE SET
+                classification = EXCLUDED.classification,
+                reason = EXCLUDED.reason,
+                model = EXCLUDED.model,
+                prompt_version = EXCLUDED.prompt_version,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsertAll(Collection<IngredientClassification> classifications) {
+        if (classifications.isEmpty()) {
+            return;
+        }
+
+        // Rows are locked in name order, so concurrent batches cannot deadlock on each other
+        List<IngredientClassification> rows = classifications.stream()
+                .sorted(Comparator.comparing(IngredientClassification::getName))
+                .toList();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                IngredientClassification classification = rows.get(i);
+                ps.setString(1, classification.getName());
+                ps.setString(2, classification.getClassification());
+                ps.setString(3, classification.getReason());
+                ps.setString(4, classification.getModel());
+                ps.setString(5, classification.getPromptVersion());
+                ps.setTimestamp(6, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.skincare.repository;
+
+import com.skincare.model.IngredientClassification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IngredientClassificationRepository extends JpaRepository<IngredientClassification, String> {
+}
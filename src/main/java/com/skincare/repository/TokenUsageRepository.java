@@ -0,0 +1,25 @@
+package com.skincare.repository;
+
+import com.skincare.dto.TokenUsageSummary;
+import com.skincare.model.TokenUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenUsageRepository extends JpaRepository<TokenUsage, Long> {
+
+    @Query("""
+            SELECT new com.skincare.dto.TokenUsageSummary(u.username, u.endpoint, u.model, u.promptVersion, u.operation,
+                   SUM(u.calls), SUM(u.inputTokens), SUM(u.cachedInputTokens), SUM(u.outputTokens), SUM(u.latencyMillis))
+            FROM TokenUsage u
+            WHERE u.windowEnd > :since AND (:username IS NULL OR u.username = :username)
+            GROUP BY u.username, u.endpoint, u.model, u.promptVersion, u.operation
+            ORDER BY SUM(u.inputTokens) + SUM(u.outputTokens) DESC
+            """)
+    List<TokenUsageSummary> summarizeSince(@Param("since") LocalDateTime since, @Param("username") String username);
+}
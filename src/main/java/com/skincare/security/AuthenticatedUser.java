@@ -0,0 +1,97 @@
+package com.skincare.security;
+
+import com.skincare.model.User;
+import io.jsonwebtoken.Claims;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The principal of a request authenticated with a JWT: the user's id, username and role as carried by
+ * the verified token, so no {@code users} row is loaded per request (the account is only re-checked
+ * through a short-lived cache). It has no password and is never persisted; {@link #reference()} links new rows to the user by id.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final User.Role role;
+
+    public AuthenticatedUser(Long id, String username, User.Role role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    /**
+     * Builds the principal from verified claims; empty for tokens issued without the id and role claims.
+     */
+    static Optional<AuthenticatedUser> fromClaims(Claims claims) {
+        Long id = claims.get(JwtService.CLAIM_USER_ID, Long.class);
+        String role = claims.get(JwtService.CLAIM_ROLE, String.class);
+        if (id == null || role == null || claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new AuthenticatedUser(id, claims.getSubject(), User.Role.valueOf(role)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A detached {@link User} carrying only the id, username and role: enough to set a foreign key or
+     * read the username without loading the user. Must not be saved or merged.
+     */
+    public User reference() {
+        return User.builder()
+                .id(id)
+                .username(username)
+                .role(role)
+                .build();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.skincare.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Resolves the client address used to key rate limits, before {@code ForwardedHeaderFilter} rewrites
+ * the request. That filter reports the leftmost {@code X-Forwarded-For} entry, which the client writes
+ * itself; here only hops appended by the trusted proxies count. With {@code n} trusted proxies the client
+ * is the entry {@code n} positions from the right of the forwarded chain followed by the socket peer, so
+ * whatever a client prepends is ignored. A chain shorter than that is keyed by the socket peer. This
+ * relies on the application only being reachable through those proxies.
+ */
+@Component
+public class ClientAddressFilter extends OncePerRequestFilter implements Ordered {
+
+    static final String ATTRIBUTE = ClientAddressFilter.class.getName() + ".address";
+
+    private final int trustedProxies;
+
+    public ClientAddressFilter(@Value("${ratelimit.trusted-proxies:1}") int trustedProxies) {
+        this.trustedProxies = Math.max(0, trustedProxies);
+    }
+
+    /**
+     * The resolved client address, or the remote address for requests this filter did not see.
+     */
+    public static String clientAddress(HttpServletRequest request) {
+        Object address = request.getAttribute(ATTRIBUTE);
+        return address instanceof String resolved ? resolved : request.getRemoteAddr();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        request.setAttribute(ATTRIBUTE, resolve(request.getHeaders("X-Forwarded-For").asIterator(),
+                request.getRemoteAddr(), trustedProxies));
+        filterChain.doFilter(request, response);
+    }
+
+    static String resolve(Iterator<String> forwardedFor, String peer, int trustedProxies) {
+        List<String> hops = new ArrayList<>();
+        while (forwardedFor.hasNext()) {
+            for (String hop : forwardedFor.next().split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        hops.add(peer);
+        int client = hops.size() - 1 - trustedProxies;
+        return client >= 0 ? hops.get(client) : peer;
+    }
+}
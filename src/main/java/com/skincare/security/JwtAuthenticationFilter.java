@@ -1,5 +1,9 @@
 package com.skincare.security;
 
+import com.skincare.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,20 +12,21 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final CustomUserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -30,28 +35,55 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
-        jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        // Times token verification and principal resolution only, not the rest of the chain
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "rejected";
+        try {
+            outcome = authenticate(request, authHeader.substring(7));
+        } finally {
+            sample.stop(meterRegistry.timer("security.jwt.filter", "outcome", outcome));
         }
         filterChain.doFilter(request, response);
     }
+
+    private String authenticate(HttpServletRequest request, String jwt) {
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return "skipped";
+        }
+        // One parse and signature check; an invalid or expired token leaves the request unauthenticated
+        Optional<Claims> claims = jwtService.verify(jwt);
+        if (claims.isEmpty() || claims.get().getSubject() == null) {
+            return "rejected";
+        }
+        // Tokens carrying the id and role are checked against a short-lived account cache, so role changes,
+        // deletions and revocations apply before the token expires; older tokens go through the user cache
+        Optional<AuthenticatedUser> fromClaims = AuthenticatedUser.fromClaims(claims.get());
+        AuthenticatedUser principal;
+        if (fromClaims.isPresent()) {
+            principal = fromClaims.get();
+            if (!userDetailsService.isCurrent(principal, JwtService.tokenVersion(claims.get()))) {
+                return "revoked";
+            }
+        } else {
+            try {
+                principal = userDetailsService.loadPrincipal(claims.get().getSubject());
+            } catch (UsernameNotFoundException e) {
+                return "rejected";
+            }
+        }
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                principal.getAuthorities()
+        );
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        return "authenticated";
+    }
 }
@@ -1,10 +1,19 @@
 package com.skincare.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.skincare.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,18 +23,97 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies HS256 tokens. The signing key and parser are built once; each token is parsed and
+ * its signature checked at most once per request through {@link #verify(String)}, and tokens verified
+ * recently are answered from a bounded cache until their own expiry.
+ */
 @Service
 @Slf4j
 public class JwtService {
 
+    // Claims that let a request be authenticated without loading the user
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    // The user's token version at issue; a token is revoked once the account's version moves past it
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.verified-cache.max-size:100000}")
+    private long verifiedCacheMaxSize;
+
+    private final MeterRegistry meterRegistry;
+    private Key signInKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        // JwtParser is immutable and thread-safe
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String signature, VerifiedToken verified, long currentTime) {
+                        return verified.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String signature, VerifiedToken verified, long currentTime, long currentDuration) {
+                        return verified.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String signature, VerifiedToken verified, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+    }
+
+    /**
+     * Parses the token and checks its signature and expiry, once. Returns the claims of a valid token,
+     * or empty for a malformed, forged or expired one.
+     */
+    public Optional<Claims> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        // Keyed by the signature, but a hit only counts for the exact token that was verified
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        VerifiedToken cached = verifiedTokens.getIfPresent(signature);
+        if (cached != null && cached.token().equals(token) && !cached.isExpired()) {
+            return Optional.of(cached.claims());
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(signature, new VerifiedToken(token, claims, claims.getExpiration().getTime()));
+            }
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected JWT: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -35,6 +123,26 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Issues a token that also carries the user's id, role and token version, from which
+     * {@link AuthenticatedUser} is built and checked against the account.
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_TOKEN_VERSION, user.currentTokenVersion());
+        return generateToken(claims, user);
+    }
+
+    /**
+     * The token version a token was issued at; 0 for tokens issued before the claim existed.
+     */
+    public static int tokenVersion(Claims claims) {
+        Integer version = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        return version == null ? 0 : version;
+    }
+
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
     }
@@ -59,29 +167,28 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return verify(token)
+                .map(claims -> userDetails.getUsername().equals(claims.getSubject()))
+                .orElse(false);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Claims extractAllClaims(String token) {
+        // Expired and forged tokens still throw here, as before
+        return verify(token).orElseGet(() -> parser.parseClaimsJws(token).getBody());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private Key getSignInKey() {
+        return signInKey;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
+    private record VerifiedToken(String token, Claims claims, long expiresAtMillis) {
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        long remainingNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+
+        boolean isExpired() {
+            return expiresAtMillis <= System.currentTimeMillis();
+        }
     }
 }
@@ -0,0 +1,161 @@
+package com.skincare.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * BCrypt run on a small dedicated pool of platform threads with a bounded queue, so a burst of logins
+ * or signups can use at most that many cores and cannot starve request and analysis threads. Callers
+ * wait for their hash; when the queue is full or the wait runs out they get
+ * {@link PasswordHashingBusyException} instead of queueing without bound.
+ * <p>
+ * The work factor is fixed with {@code password.bcrypt.strength}, or else calibrated at startup to the
+ * highest cost whose hash stays within {@code password.bcrypt.target-latency} on this machine. Stored
+ * hashes with a lower cost report {@link #upgradeEncoding}, and the authentication provider rehashes
+ * them on the next successful login.
+ */
+@Component
+@Slf4j
+public class OffloadedPasswordEncoder implements PasswordEncoder {
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final Duration maxWait;
+    private final MeterRegistry meterRegistry;
+
+    public OffloadedPasswordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${password.bcrypt.strength:0}") int configuredStrength,
+            @Value("${password.bcrypt.target-latency:250ms}") Duration targetLatency,
+            @Value("${password.bcrypt.min-strength:10}") int minStrength,
+            @Value("${password.bcrypt.max-strength:14}") int maxStrength,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue-capacity:100}") int queueCapacity,
+            @Value("${password.hashing.max-wait:5s}") Duration maxWait
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.maxWait = maxWait;
+        this.strength = configuredStrength > 0 ? configuredStrength : calibrate(targetLatency, minStrength, maxStrength);
+        this.delegate = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hashing");
+
+        Gauge.builder("password.bcrypt.strength", this, encoder -> encoder.strength)
+                .description("BCrypt work factor used for new hashes")
+                .register(meterRegistry);
+        log.info("Password hashing uses BCrypt cost {} on {} threads (queue capacity {})", strength, poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True for hashes made with a lower cost than the current one; only reads the hash prefix.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(String operation, Callable<T> hash) {
+        // Timed from submission, so queueing behind other hashes is included
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            Future<T> future;
+            try {
+                future = executor.submit(hash);
+            } catch (RejectedExecutionException e) {
+                outcome = "queue_full";
+                throw new PasswordHashingBusyException("Password hashing queue is full", maxWait);
+            }
+            try {
+                return future.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // A task still in the queue is skipped once cancelled
+                future.cancel(true);
+                outcome = "wait_timeout";
+                throw new PasswordHashingBusyException("Timed out waiting for password hashing", maxWait);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                outcome = "error";
+                throw new IllegalStateException("Interrupted while hashing a password", e);
+            } catch (ExecutionException e) {
+                outcome = "error";
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Password hashing failed", e.getCause());
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("password.hashing", "operation", operation, "outcome", outcome));
+        }
+    }
+
+    /**
+     * Highest cost between the bounds whose hash is estimated to fit the target. Each cost step doubles
+     * the work, so the cost is raised from the fastest measured hash at the minimum cost.
+     */
+    private static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode(CALIBRATION_PASSWORD);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode(CALIBRATION_PASSWORD);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long estimate = fastest;
+        while (strength < maxStrength && estimate * 2 <= targetLatency.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+        log.info("Calibrated BCrypt cost {} (~{} ms per hash, target {} ms)",
+                strength, TimeUnit.NANOSECONDS.toMillis(estimate), targetLatency.toMillis());
+        return strength;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,20 @@
+package com.skincare.security;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the password hashing pool is saturated: its queue is full, or a hash waited longer than
+ * allowed for a thread. Surfaces as 503 with a Retry-After header.
+ */
+@Getter
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public PasswordHashingBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
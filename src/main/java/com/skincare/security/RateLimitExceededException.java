@@ -0,0 +1,21 @@
+package com.skincare.security;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a user has used up their request allowance for a {@link RateLimiter.Scope}.
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    private final RateLimiter.Scope scope;
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(RateLimiter.Scope scope, Duration retryAfter) {
+        super("Rate limit exceeded for " + scope);
+        this.scope = scope;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,213 @@
+package com.skincare.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user token buckets in front of the expensive endpoints, so one account cannot use up the shared
+ * OpenAI quota. Each {@link Scope} has its own buckets and a plan per role ("capacity/period", e.g.
+ * "30/1m": bursts of up to 30 requests, refilled at 30 per minute). Every endpoint that reaches OpenAI
+ * charges the analysis scopes. Batches have their own scope, sized for catalog pages and charged one
+ * token per distinct item, so a batch neither drains nor is refused by the interactive analysis budget.
+ * <p>
+ * Logins are limited three ways: per client address, per attempted username from that address, and per
+ * attempted username from anywhere. The per-account cap is larger, so a client guessing one account's
+ * password is stopped by its own bucket long before the owner is locked out, yet spreading the guesses
+ * over many addresses still hits a fixed ceiling. Client addresses come from {@link ClientAddressFilter}.
+ * <p>
+ * A bucket is two primitive fields guarded by one of a fixed set of striped locks, so the hot path is a
+ * map lookup and a few arithmetic operations. A bucket idle for a full period would be back at capacity
+ * anyway, so the maps forget buckets after that long; memory tracks active users, not all users.
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    public enum Scope {
+        ANALYZE, ANALYZE_IMAGE, ANALYZE_BATCH, LOGIN, LOGIN_SOURCE, LOGIN_ACCOUNT
+    }
+
+    private static final int STRIPES = 64;
+
+    private final Map<Scope, Limits> limits = new EnumMap<>(Scope.class);
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    public RateLimiter(
+            @Value("${ratelimit.enabled:true}") boolean enabled,
+            @Value("${ratelimit.analyze.user:30/1m}") String analyzeUser,
+            @Value("${ratelimit.analyze.admin:300/1m}") String analyzeAdmin,
+            @Value("${ratelimit.analyze-image.user:10/1m}") String analyzeImageUser,
+            @Value("${ratelimit.analyze-image.admin:100/1m}") String analyzeImageAdmin,
+            @Value("${ratelimit.analyze-batch.user:1000/1h}") String analyzeBatchUser,
+            @Value("${ratelimit.analyze-batch.admin:10000/1h}") String analyzeBatchAdmin,
+            @Value("${ratelimit.login:10/5m}") String login,
+            @Value("${ratelimit.login-source:50/5m}") String loginSource,
+            @Value("${ratelimit.login-account:50/15m}") String loginAccount,
+            @Value("${ratelimit.max-tracked-users:1000000}") long maxTrackedUsers,
+            MeterRegistry meterRegistry
+    ) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        if (!enabled) {
+            log.info("Per-user rate limiting is disabled");
+            return;
+        }
+        limits.put(Scope.ANALYZE, new Limits(Scope.ANALYZE, Plan.parse(analyzeUser), Plan.parse(analyzeAdmin), maxTrackedUsers, meterRegistry));
+        limits.put(Scope.ANALYZE_IMAGE, new Limits(Scope.ANALYZE_IMAGE, Plan.parse(analyzeImageUser), Plan.parse(analyzeImageAdmin), maxTrackedUsers, meterRegistry));
+        limits.put(Scope.ANALYZE_BATCH, new Limits(Scope.ANALYZE_BATCH, Plan.parse(analyzeBatchUser), Plan.parse(analyzeBatchAdmin), maxTrackedUsers, meterRegistry));
+        // Login is limited before anyone is authenticated: by client address, by username per client address,
+        // and by username alone
+        limits.put(Scope.LOGIN, new Limits(Scope.LOGIN, Plan.parse(login), Plan.parse(login), maxTrackedUsers, meterRegistry));
+        limits.put(Scope.LOGIN_SOURCE, new Limits(Scope.LOGIN_SOURCE, Plan.parse(loginSource), Plan.parse(loginSource), maxTrackedUsers, meterRegistry));
+        limits.put(Scope.LOGIN_ACCOUNT, new Limits(Scope.LOGIN_ACCOUNT, Plan.parse(loginAccount), Plan.parse(loginAccount), maxTrackedUsers, meterRegistry));
+    }
+
+    /**
+     * Takes one token from the authenticated user's bucket for {@code scope}, picking the plan from
+     * their role; throws {@link RateLimitExceededException} when the bucket is empty.
+     */
+    public void consume(Scope scope, UserDetails user) {
+        consume(scope, user, 1);
+    }
+
+    /**
+     * Takes {@code permits} tokens at once, e.g. one per distinct item of a batch. A request larger than
+     * the plan's whole burst capacity is charged the full capacity, so it is admitted once the bucket is
+     * full rather than never.
+     */
+    public void consume(Scope scope, UserDetails user, int permits) {
+        consume(scope, user.getUsername(), isAdmin(user), permits);
+    }
+
+    /**
+     * Takes one token from each login bucket: the client's own, the one for the attempted username from
+     * that client, and the account-wide one for the username whatever the client.
+     */
+    public void consumeLogin(String username, String clientAddress) {
+        String source = clientAddress == null ? "" : clientAddress;
+        String user = username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+        consume(Scope.LOGIN_SOURCE, source, false, 1);
+        consume(Scope.LOGIN, user + "\u0000" + source, false, 1);
+        consume(Scope.LOGIN_ACCOUNT, user, false, 1);
+    }
+
+    private void consume(Scope scope, String key, boolean admin, int permits) {
+        Limits scoped = limits.get(scope);
+        if (scoped == null || permits <= 0) {
+            return;
+        }
+        Plan plan = admin ? scoped.admin : scoped.user;
+        int charged = Math.min(permits, plan.capacity());
+        Bucket bucket = scoped.buckets.get(key, k -> new Bucket(plan.capacity(), System.nanoTime()));
+
+        long waitNanos;
+        ReentrantLock lock = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        lock.lock();
+        try {
+            waitNanos = bucket.tryConsume(plan, charged, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+
+        if (waitNanos > 0) {
+            scoped.rejected.increment();
+            throw new RateLimitExceededException(scope, Duration.ofNanos(waitNanos));
+        }
+        scoped.allowed.increment();
+    }
+
+    private static boolean isAdmin(UserDetails user) {
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            if ("ADMIN".equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Burst capacity and the time it takes to refill it completely.
+     */
+    record Plan(int capacity, Duration period) {
+
+        static Plan parse(String spec) {
+            int slash = spec.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Rate limit plan must look like <capacity>/<period>: " + spec);
+            }
+            int capacity = Integer.parseInt(spec.substring(0, slash).trim());
+            Duration period = DurationStyle.detectAndParse(spec.substring(slash + 1).trim());
+            if (capacity <= 0 || period.isZero() || period.isNegative()) {
+                throw new IllegalArgumentException("Rate limit plan must have a positive capacity and period: " + spec);
+            }
+            return new Plan(capacity, period);
+        }
+
+        double tokensPerNano() {
+            return (double) capacity / period.toNanos();
+        }
+    }
+
+    private static final class Limits {
+        private final Plan user;
+        private final Plan admin;
+        private final Cache<String, Bucket> buckets;
+        private final Counter allowed;
+        private final Counter rejected;
+
+        private Limits(Scope scope, Plan user, Plan admin, long maxTrackedUsers, MeterRegistry meterRegistry) {
+            this.user = user;
+            this.admin = admin;
+            Duration idle = user.period().compareTo(admin.period()) >= 0 ? user.period() : admin.period();
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(idle)
+                    .maximumSize(maxTrackedUsers)
+                    .build();
+            String tag = scope.name().toLowerCase(Locale.ROOT);
+            this.allowed = meterRegistry.counter("ratelimit.requests", "scope", tag, "outcome", "allowed");
+            this.rejected = meterRegistry.counter("ratelimit.requests", "scope", tag, "outcome", "rejected");
+        }
+    }
+
+    /**
+     * Token bucket state; only touched while holding the stripe lock for its key.
+     */
+    static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefillNanos = now;
+        }
+
+        /**
+         * Returns 0 when the tokens were taken, otherwise how long until enough of them are available.
+         */
+        long tryConsume(Plan plan, int permits, long now) {
+            double rate = plan.tokensPerNano();
+            tokens = Math.min(plan.capacity(), tokens + (now - lastRefillNanos) * rate);
+            lastRefillNanos = now;
+            if (tokens >= permits) {
+                tokens -= permits;
+                return 0;
+            }
+            return (long) Math.ceil((permits - tokens) / rate);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.skincare.service;
+
+import com.skincare.dto.AnalysisHistoryCursor;
+import com.skincare.dto.AnalysisHistoryPage;
+import com.skincare.dto.IngredientAnalysisResponseDto;
+import com.skincare.repository.IngredientAnalysisRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated analysis history. A page is one SQL statement: an index range scan on
+ * (user_id, analysis_date, id) starting at the cursor, so its cost does not grow with the number of
+ * analyses a user has. Rows are projected straight into response DTOs; no entity is loaded, and a page
+ * holds at most one row more than its size.
+ */
+@Service
+public class AnalysisHistoryService {
+
+    private final IngredientAnalysisRepository analysisRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public AnalysisHistoryService(
+            IngredientAnalysisRepository analysisRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${analysis.history.default-page-size:20}") int defaultPageSize,
+            @Value("${analysis.history.max-page-size:100}") int maxPageSize
+    ) {
+        this.analysisRepository = analysisRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * The requested page size clamped to 1..max, or the default when none was requested.
+     */
+    public int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(requested, maxPageSize));
+    }
+
+    /**
+     * Reads up to {@code pageSize} analyses after {@code after} (or from the newest when null), newest
+     * first, with the username set. The page is read in one short read-only transaction and returned
+     * whole, so no connection is held while it is written to the client.
+     *
+     * @param includeAnalysis false for list views: the safety analysis column is not read
+     */
+    public AnalysisHistoryPage page(Long userId, String username, AnalysisHistoryCursor after, int pageSize,
+                                    boolean includeAnalysis) {
+        // One row past the page tells whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<IngredientAnalysisResponseDto> rows = readOnlyTransaction.execute(status -> query(userId, after, includeAnalysis, limit));
+        return toPage(rows, pageSize, username);
+    }
+
+    /**
+     * Trims the look-ahead row off {@code rows} and derives the next cursor from the last row kept.
+     */
+    static AnalysisHistoryPage toPage(List<IngredientAnalysisResponseDto> rows, int pageSize, String username) {
+        List<IngredientAnalysisResponseDto> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        items.forEach(item -> item.setUsername(username));
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            IngredientAnalysisResponseDto last = items.get(items.size() - 1);
+            nextCursor = new AnalysisHistoryCursor(last.getAnalysisDate(), last.getId()).encode();
+        }
+        return new AnalysisHistoryPage(List.copyOf(items), nextCursor);
+    }
+
+    private List<IngredientAnalysisResponseDto> query(Long userId, AnalysisHistoryCursor after, boolean includeAnalysis,
+                                                      Limit limit) {
+        if (after == null) {
+            return includeAnalysis
+                    ? analysisRepository.findHistory(userId, limit)
+                    : analysisRepository.findHistorySummary(userId, limit);
+        }
+        return includeAnalysis
+                ? analysisRepository.findHistoryBefore(userId, after.analysisDate(), after.id(), limit)
+                : analysisRepository.findHistorySummaryBefore(userId, after.analysisDate(), after.id(), limit);
+    }
+}
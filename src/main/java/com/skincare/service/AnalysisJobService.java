@@ -0,0 +1,301 @@
+package com.skincare.service;
+
+import com.skincare.dto.AnalysisJobResponseDto;
+import com.skincare.model.AnalysisJob;
+import com.skincare.model.IngredientAnalysis;
+import com.skincare.model.User;
+import com.skincare.repository.AnalysisJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Job-based analysis: submissions are persisted to {@code analysis_jobs} and drained by a bounded
+ * worker pool that runs the regular vision + ingredient analysis pipeline. Jobs are claimed with a
+ * visibility timeout, so a job held by a crashed worker is picked up again once its lease expires.
+ * Failed and shed jobs are requeued behind a jittered backoff rather than on the next poll.
+ */
+@Service
+@Slf4j
+public class AnalysisJobService {
+
+    private static final List<AnalysisJob.Status> OUTSTANDING = List.of(AnalysisJob.Status.PENDING, AnalysisJob.Status.RUNNING);
+
+    private final AnalysisJobRepository jobRepository;
+    private final IngredientAnalysisService analysisService;
+    private final OpenAIVisionService visionService;
+    private final TokenUsageRecorder usageRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final int workers;
+    private final long maxQueueDepth;
+    private final Duration visibilityTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration maxShedTime;
+
+    private final ExecutorService workerPool;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public AnalysisJobService(
+            AnalysisJobRepository jobRepository,
+            IngredientAnalysisService analysisService,
+            OpenAIVisionService visionService,
+            TokenUsageRecorder usageRecorder,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${analysis.jobs.workers:8}") int workers,
+            @Value("${analysis.jobs.max-queue-depth:1000}") long maxQueueDepth,
+            @Value("${analysis.jobs.visibility-timeout:5m}") Duration visibilityTimeout,
+            @Value("${analysis.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${analysis.jobs.retry-backoff:5s}") Duration retryBackoff,
+            @Value("${analysis.jobs.max-retry-backoff:5m}") Duration maxRetryBackoff,
+            @Value("${analysis.jobs.max-shed-time:1h}") Duration maxShedTime,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.jobRepository = jobRepository;
+        this.analysisService = analysisService;
+        this.visionService = visionService;
+        this.usageRecorder = usageRecorder;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.workers = workers;
+        this.maxQueueDepth = maxQueueDepth;
+        this.visibilityTimeout = visibilityTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.maxShedTime = maxShedTime;
+        this.workerPool = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(workers);
+
+        Gauge.builder("analysis.jobs.queue.depth", queueDepth, AtomicLong::get)
+                .description("Pending analysis jobs")
+                .register(meterRegistry);
+        Gauge.builder("analysis.jobs.active", activeWorkers, AtomicInteger::get)
+                .description("Analysis jobs currently being processed")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("analysis.jobs.wait")
+                .description("Time jobs spend queued before a worker claims them")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("analysis.jobs.rejected")
+                .description("Submissions rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public AnalysisJob submitText(User user, String ingredients, String productName) {
+        return enqueue(user, AnalysisJob.builder()
+                .type(AnalysisJob.Type.TEXT)
+                .ingredients(ingredients)
+                .productName(productName));
+    }
+
+    public AnalysisJob submitImage(User user, byte[] imageData, String contentType, String productName) {
+        return enqueue(user, AnalysisJob.builder()
+                .type(AnalysisJob.Type.IMAGE)
+                .imageData(imageData)
+                .imageContentType(contentType)
+                .productName(productName));
+    }
+
+    /**
+     * Status of one of the user's jobs, read without its image or analysis; empty for unknown or foreign jobs.
+     */
+    public Optional<AnalysisJobResponseDto> findJobStatus(Long userId, Long jobId) {
+        return jobRepository.findStatusById(userId, jobId);
+    }
+
+    /**
+     * Like {@link #findJobStatus}, plus the saved analysis once the job has completed. A finished job's
+     * image has already been cleared, so only then is the full row loaded.
+     */
+    public Optional<AnalysisJobResponseDto> describeJob(Long userId, Long jobId) {
+        return findJobStatus(userId, jobId).map(status -> status.getStatus() != AnalysisJob.Status.COMPLETED
+                ? status
+                : jobRepository.findWithUserById(jobId).map(AnalysisJobResponseDto::from).orElse(status));
+    }
+
+    /**
+     * @param user the owner; a reference is enough, the user is not loaded
+     */
+    private AnalysisJob enqueue(User user, AnalysisJob.AnalysisJobBuilder builder) {
+        long outstanding = jobRepository.countByStatusIn(OUTSTANDING);
+        if (outstanding >= maxQueueDepth) {
+            rejectedCounter.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Analysis queue is full, please retry later");
+        }
+
+        AnalysisJob job = jobRepository.save(builder
+                .user(user)
+                .status(AnalysisJob.Status.PENDING)
+                .build());
+        queueDepth.incrementAndGet();
+        log.info("Queued {} analysis job {} for {}", job.getType(), job.getId(), user.getUsername());
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.jobs.poll-interval:1000}")
+    public void poll() {
+        queueDepth.set(jobRepository.countByStatus(AnalysisJob.Status.PENDING));
+
+        int free = workers - activeWorkers.get();
+        if (free <= 0) {
+            return;
+        }
+
+        List<Long> claimed = transactionTemplate.execute(status -> claim(free));
+        if (claimed == null) {
+            return;
+        }
+        for (Long jobId : claimed) {
+            activeWorkers.incrementAndGet();
+            workerPool.execute(() -> {
+                try {
+                    process(jobId);
+                } finally {
+                    activeWorkers.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private List<Long> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = new ArrayList<>();
+        for (AnalysisJob job : jobRepository.lockRunnable(now, limit)) {
+            if (job.getStatus() == AnalysisJob.Status.RUNNING) {
+                log.warn("Analysis job {} lease expired, reclaiming (attempt {})", job.getId(), job.getAttempts());
+            }
+            if (job.getAttempts() >= maxAttempts) {
+                markFailed(job, "Gave up after " + job.getAttempts() + " attempts");
+                continue;
+            }
+            if (job.getStatus() == AnalysisJob.Status.PENDING) {
+                waitTimer.record(Duration.between(job.getQueuedAt() != null ? job.getQueuedAt() : job.getCreatedAt(), now));
+            }
+            job.setStatus(AnalysisJob.Status.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setStartedAt(now);
+            job.setVisibleAt(now.plus(visibilityTimeout));
+            claimed.add(job.getId());
+        }
+        return claimed;
+    }
+
+    private void process(Long jobId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "completed";
+        try {
+            AnalysisJob job = jobRepository.findWithUserById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+
+            // Tokens spent by a worker are charged to the job's owner
+            TokenUsageRecorder.Attribution attribution = new TokenUsageRecorder.Attribution(
+                    job.getUser().getUsername(), "job " + job.getType().name().toLowerCase());
+            IngredientAnalysis analysis = usageRecorder.callAs(attribution, () -> {
+                String ingredients = job.getType() == AnalysisJob.Type.IMAGE
+                        ? visionService.extractIngredientsFromImageAsync(job.getImageData(), job.getImageContentType()).block()
+                        : job.getIngredients();
+                return analysisService.analyzeIngredient(job.getUser(), ingredients, job.getProductName());
+            });
+
+            transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(current -> {
+                current.setStatus(AnalysisJob.Status.COMPLETED);
+                current.setAnalysis(analysis);
+                current.setCompletedAt(LocalDateTime.now());
+                current.setImageData(null);
+            }));
+            log.info("Analysis job {} completed", jobId);
+
+        } catch (OpenAIOverloadedException e) {
+            outcome = "shed";
+            log.warn("Analysis job {} shed by the OpenAI limiter, requeueing", jobId);
+            transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(current -> {
+                LocalDateTime now = LocalDateTime.now();
+                Duration queued = Duration.between(current.getCreatedAt(), now);
+                if (queued.compareTo(maxShedTime) >= 0) {
+                    markFailed(current, "OpenAI stayed overloaded for " + queued.toMinutes() + " minutes");
+                    return;
+                }
+                // Shedding is back-pressure, not a failure of the job: it does not use up an attempt. The
+                // backoff grows with the time already queued, so a long overload is retried less and less often
+                current.setAttempts(current.getAttempts() - 1);
+                requeue(current, now, backoff(retryBackoff, maxRetryBackoff, queued));
+            }));
+        } catch (Exception e) {
+            outcome = "failed";
+            log.error("Analysis job {} failed: {}", jobId, e.getMessage(), e);
+            transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(current -> {
+                if (current.getAttempts() >= maxAttempts) {
+                    markFailed(current, e.getMessage());
+                } else {
+                    // Back to the queue for another attempt, doubling the backoff with each one used
+                    current.setErrorMessage(e.getMessage());
+                    requeue(current, LocalDateTime.now(), backoff(retryBackoff, maxRetryBackoff,
+                            retryBackoff.multipliedBy(1L << Math.min(current.getAttempts() - 1, 20))));
+                }
+            }));
+        } finally {
+            sample.stop(meterRegistry.timer("analysis.jobs.processing", "outcome", outcome));
+        }
+    }
+
+    private void requeue(AnalysisJob job, LocalDateTime now, Duration backoff) {
+        job.setStatus(AnalysisJob.Status.PENDING);
+        job.setQueuedAt(now);
+        job.setVisibleAt(now.plus(backoff));
+    }
+
+    /**
+     * {@code delay} clamped to {@code [base, max]}, half of it kept and half randomized, so jobs requeued
+     * together (one overload sheds many at once) do not all come back on the same poll.
+     */
+    static Duration backoff(Duration base, Duration max, Duration delay) {
+        long millis = Math.max(base.toMillis(), Math.min(max.toMillis(), delay.toMillis()));
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private void markFailed(AnalysisJob job, String errorMessage) {
+        job.setStatus(AnalysisJob.Status.FAILED);
+        job.setErrorMessage(errorMessage);
+        job.setCompletedAt(LocalDateTime.now());
+        job.setImageData(null);
+        log.warn("Analysis job {} failed permanently: {}", job.getId(), errorMessage);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Unfinished jobs keep their lease and are reclaimed by another instance once it expires
+        workerPool.shutdown();
+        workerPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
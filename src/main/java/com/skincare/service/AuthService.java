@@ -8,6 +8,8 @@ import com.skincare.security.JwtService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -19,6 +21,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
 
     public String signup(SignupRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
@@ -41,16 +44,28 @@ public class AuthService {
     }
 
     public String login(AuthRequest request) {
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getUsername(),
                         request.getPassword()
                 )
         );
 
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
+        // The provider already loaded the user to check the password; no second lookup
+        User user = (User) authentication.getPrincipal();
         return jwtService.generateToken(user);
     }
+
+    /**
+     * Revokes every token issued to the user so far, the caller's own included, by raising the user's
+     * token version. The cached account state is evicted again once the save has committed, so no request
+     * racing the update can keep the old version cached.
+     */
+    public void revokeTokens(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userId));
+        user.setTokenVersion(user.currentTokenVersion() + 1);
+        userRepository.save(user);
+        userDetailsService.evictAccount(userId);
+    }
 }
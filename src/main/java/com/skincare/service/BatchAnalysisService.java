@@ -0,0 +1,179 @@
+package com.skincare.service;
+
+import com.skincare.dto.BatchAnalysisItemResult;
+import com.skincare.dto.IngredientAnalysisRequest;
+import com.skincare.dto.IngredientAnalysisResponseDto;
+import com.skincare.dto.IngredientAnalysisResult;
+import com.skincare.model.IngredientAnalysis;
+import com.skincare.model.User;
+import com.skincare.repository.IngredientAnalysisBatchRepository;
+import com.skincare.util.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyzes many products in one request: identical items are analyzed once, upstream calls run
+ * concurrently up to a fixed limit, and results are written with JDBC batch inserts and streamed
+ * back as each write batch completes.
+ */
+@Service
+@Slf4j
+public class BatchAnalysisService {
+
+    private final ChatGPTService chatGPTService;
+    private final IngredientAnalysisService analysisService;
+    private final IngredientAnalysisBatchRepository batchRepository;
+    private final IngredientTokenizer tokenizer;
+    private final OpenAIResilience resilience;
+    private final TokenUsageRecorder usageRecorder;
+    private final Scheduler blockingScheduler;
+
+    private final int maxItems;
+    private final int concurrency;
+    private final int writeBatchSize;
+    private final Duration flushInterval;
+
+    public BatchAnalysisService(
+            ChatGPTService chatGPTService,
+            IngredientAnalysisService analysisService,
+            IngredientAnalysisBatchRepository batchRepository,
+            IngredientTokenizer tokenizer,
+            OpenAIResilience resilience,
+            TokenUsageRecorder usageRecorder,
+            Scheduler blockingScheduler,
+            @Value("${analysis.batch.max-items:500}") int maxItems,
+            @Value("${analysis.batch.concurrency:8}") int concurrency,
+            @Value("${analysis.batch.write-batch-size:50}") int writeBatchSize,
+            @Value("${analysis.batch.flush-interval:500ms}") Duration flushInterval
+    ) {
+        this.chatGPTService = chatGPTService;
+        this.analysisService = analysisService;
+        this.batchRepository = batchRepository;
+        this.tokenizer = tokenizer;
+        this.resilience = resilience;
+        this.usageRecorder = usageRecorder;
+        this.blockingScheduler = blockingScheduler;
+        this.maxItems = maxItems;
+        this.concurrency = concurrency;
+        this.writeBatchSize = writeBatchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Validates a batch and groups identical items (same ingredients and product name), so callers can
+     * charge for the analyses that will actually run before starting them.
+     */
+    public BatchPlan plan(List<IngredientAnalysisRequest> items) {
+        if (items.size() > maxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch may contain at most " + maxItems + " items");
+        }
+
+        Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+        Map<String, IngredientAnalysisRequest> uniqueItems = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            String key = dedupeKey(items.get(i));
+            indexesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            uniqueItems.putIfAbsent(key, items.get(i));
+        }
+        return new BatchPlan(items.size(), uniqueItems, indexesByKey);
+    }
+
+    public Flux<BatchAnalysisItemResult> analyzeBatch(User user, BatchPlan plan) {
+        // Identical items are analyzed and stored once
+        log.info("Batch of {} items from {} reduced to {} unique analyses", plan.size(), user.getUsername(), plan.distinctItems());
+        Map<String, List<Integer>> indexesByKey = plan.indexesByKey();
+        // Items past the first few are started from whichever thread finished an earlier one, so the
+        // request's deadline and attribution are carried in the Reactor context; every item shares them
+        Deadline deadline = resilience.currentDeadline();
+        TokenUsageRecorder.Attribution attribution = usageRecorder.currentAttribution();
+
+        return Flux.fromIterable(plan.uniqueItems().entrySet())
+                .flatMap(entry -> analyze(entry.getKey(), entry.getValue()), concurrency)
+                .bufferTimeout(writeBatchSize, flushInterval)
+                .publishOn(blockingScheduler)
+                .concatMapIterable(batch -> persist(user, batch, indexesByKey))
+                .contextWrite(OpenAIResilience.withDeadline(deadline))
+                .contextWrite(TokenUsageRecorder.withAttribution(attribution));
+    }
+
+    private Mono<PendingItem> analyze(String key, IngredientAnalysisRequest item) {
+        return chatGPTService.analyzeIngredientsAsync(item.getIngredients())
+                .map(result -> new PendingItem(key, item, result, null))
+                .onErrorResume(e -> {
+                    log.error("Batch item analysis failed: {}", e.getMessage(), e);
+                    return Mono.just(new PendingItem(key, item, null, e.getMessage()));
+                });
+    }
+
+    private List<BatchAnalysisItemResult> persist(User user, List<PendingItem> batch, Map<String, List<Integer>> indexesByKey) {
+        List<PendingItem> succeeded = new ArrayList<>();
+        List<IngredientAnalysis> analyses = new ArrayList<>();
+        List<BatchAnalysisItemResult> results = new ArrayList<>();
+
+        for (PendingItem pending : batch) {
+            if (pending.error() != null) {
+                indexesByKey.get(pending.key()).forEach(index ->
+                        results.add(new BatchAnalysisItemResult(index, null, pending.error())));
+                continue;
+            }
+            try {
+                analyses.add(analysisService.buildAnalysis(
+                        user,
+                        tokenizer.tokenize(pending.item().getIngredients()),
+                        pending.result(),
+                        pending.result().getOverall_rating() / 10.0,
+                        pending.item().getProductName()));
+                succeeded.add(pending);
+            } catch (Exception e) {
+                indexesByKey.get(pending.key()).forEach(index ->
+                        results.add(new BatchAnalysisItemResult(index, null, e.getMessage())));
+            }
+        }
+
+        try {
+            batchRepository.insertAll(analyses);
+        } catch (Exception e) {
+            log.error("Batch insert of {} analyses failed: {}", analyses.size(), e.getMessage(), e);
+            succeeded.forEach(pending -> indexesByKey.get(pending.key()).forEach(index ->
+                    results.add(new BatchAnalysisItemResult(index, null, "Failed to save analysis"))));
+            return results;
+        }
+
+        for (int i = 0; i < succeeded.size(); i++) {
+            IngredientAnalysisResponseDto dto = IngredientAnalysisResponseDto.from(analyses.get(i));
+            indexesByKey.get(succeeded.get(i).key()).forEach(index ->
+                    results.add(new BatchAnalysisItemResult(index, dto, null)));
+        }
+        return results;
+    }
+
+    private String dedupeKey(IngredientAnalysisRequest item) {
+        String normalized = String.join(",", tokenizer.tokenize(item.getIngredients()));
+        return (item.getProductName() == null ? "" : item.getProductName().trim()) + "\u0000" + normalized;
+    }
+
+    /**
+     * A validated batch: its distinct items by dedupe key, and the submitted positions of each.
+     */
+    public record BatchPlan(int size, Map<String, IngredientAnalysisRequest> uniqueItems, Map<String, List<Integer>> indexesByKey) {
+
+        public int distinctItems() {
+            return uniqueItems.size();
+        }
+    }
+
+    private record PendingItem(String key, IngredientAnalysisRequest item, IngredientAnalysisResult result, String error) {
+    }
+}
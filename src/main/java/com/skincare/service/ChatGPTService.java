@@ -1,35 +1,61 @@
 package com.skincare.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skincare.cache.AnalysisResultCache;
 import com.skincare.dto.IngredientAnalysisResult;
+import com.skincare.dto.IngredientAnalysisStreamEvent;
+import com.skincare.util.Deadline;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import com.skincare.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
-
-import java.util.Arrays;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatGPTService {
 
-    private final WebClient.Builder webClientBuilder;
-    private final ObjectMapper objectMapper;
+    // Bump whenever buildPrompt changes so cached results from the old prompt are not reused
+    static final String PROMPT_VERSION = "v1";
 
-    @Value("${chatgpt.api.url}")
-    private String chatGPTApiUrl;
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
 
-    @Value("${chatgpt.api.key}")
-    private String chatGPTApiKey;
+    private final WebClient openAiWebClient;
+    private final ObjectMapper objectMapper;
+    private final AnalysisResultCache resultCache;
+    private final IngredientClassificationService classificationService;
+    private final IngredientRuleEngine ruleEngine;
+    private final IngredientTokenizer tokenizer;
+    private final OpenAIResilience resilience;
+    private final TokenUsageRecorder usageRecorder;
+    private final PipelineMetrics metrics;
+    private final Scheduler blockingScheduler;
+    private final SingleFlight<String, IngredientAnalysisResult> inFlightAnalyses = new SingleFlight<>();
 
     @Value("${chatgpt.model}")
     private String chatGPTModel;
@@ -37,72 +63,377 @@ public class ChatGPTService {
     @Value("${chatgpt.temperature}")
     private double chatGPTTemperature;
 
+    @Value("${ingredients.rules.prefilter:true}")
+    private boolean ruleEnginePrefilter;
+
     public IngredientAnalysisResult analyzeIngredients(String ingredientsText) {
-        try {
-            String normalizedIngredients = normalizeAndTrimIngredients(ingredientsText, 150, 8000);
-            String prompt = buildPrompt(normalizedIngredients);
-
-            Map<String, Object> request = new LinkedHashMap<>();
-            request.put("model", chatGPTModel);
-            request.put("input", List.of(
-                    Map.of(
-                            "role", "system",
-                            "content", List.of(
-                                    Map.of(
-                                            "type", "input_text",
-                                            "text", "You are an expert in cosmetic and skincare formulation analysis."
-                                    )
-                            )
-                    ),
-                    Map.of(
-                            "role", "user",
-                            "content", List.of(
-                                    Map.of(
-                                            "type", "input_text",
-                                            "text", prompt
-                                    )
-                            )
-                    )
-            ));
-            request.put("max_output_tokens", 2000);
-
-            if (isGpt5Model(chatGPTModel)) {
-                request.put("reasoning", Map.of("effort", "none"));
-            } else {
-                request.put("temperature", chatGPTTemperature);
-            }
+        return analyzeIngredientsAsync(ingredientsText).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #analyzeIngredients(String)}. Blocking work (classification
+     * store reads and writes) runs on the injected {@code blockingScheduler} (platform or virtual threads,
+     * see {@link com.skincare.config.ExecutionConfig}), never the Netty event loop.
+     */
+    public Mono<IngredientAnalysisResult> analyzeIngredientsAsync(String ingredientsText) {
+        List<String> names = normalizeAndTrimIngredients(ingredientsText, 150, 8000);
+        String normalizedIngredients = String.join(", ", names);
+        String cacheKey = resultCache.keyFor(normalizedIngredients, chatGPTModel, PROMPT_VERSION);
+
+        IngredientAnalysisResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Analysis cache hit for key {}", cacheKey);
+            return Mono.just(cached);
+        }
+
+        // Concurrent requests for the same ingredient list share a single upstream call;
+        // a cancelled subscriber must not cancel the shared call for everyone else.
+        // The shared call runs under the deadline of the request that started it, and its tokens are charged to it.
+        // When this is assembled off the request thread (e.g. after a vision call), the caller's deadline and
+        // attribution come from the subscriber's context instead.
+        Deadline threadDeadline = resilience.currentDeadline();
+        TokenUsageRecorder.Attribution threadAttribution = usageRecorder.currentAttribution();
+        return Mono.deferContextual(context -> {
+            Deadline deadline = context.getOrDefault(Deadline.class, threadDeadline);
+            TokenUsageRecorder.Attribution attribution = context.getOrDefault(TokenUsageRecorder.Attribution.class, threadAttribution);
+            return Mono.fromFuture(inFlightAnalyses.execute(cacheKey,
+                    () -> analyzeAndCache(ingredientsText, names, normalizedIngredients, cacheKey)
+                            .contextWrite(OpenAIResilience.withDeadline(deadline))
+                            .contextWrite(TokenUsageRecorder.withAttribution(attribution))
+                            .toFuture()), true);
+        });
+    }
+
+    private Mono<IngredientAnalysisResult> analyzeAndCache(String ingredientsText, List<String> names,
+                                                           String normalizedIngredients, String cacheKey) {
+        return analyzeUnknownIngredients(names, normalizedIngredients)
+                // Only real model answers are cached; fallbacks must be retried on the next call
+                .doOnNext(result -> resultCache.put(cacheKey, result))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("No valid response received from OpenAI API");
+                    return createFallbackAnalysis(ingredientsText, "empty_response");
+                }))
+                .onErrorResume(CallNotPermittedException.class, e -> {
+                    log.warn("OpenAI circuit breaker is open, answering from the local ingredient dictionary");
+                    return Mono.just(createFallbackAnalysis(ingredientsText, "circuit_open"));
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.error("OpenAI API returned {} with body: {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
+                    return Mono.just(createFallbackAnalysis(ingredientsText, "http_error"));
+                })
+                // Shed calls are not answered locally: the caller gets 503 + Retry-After and tries again
+                .onErrorResume(e -> !(e instanceof OpenAIOverloadedException), e -> {
+                    log.error("Error calling OpenAI API: {}", e.getMessage(), e);
+                    return Mono.just(createFallbackAnalysis(ingredientsText, "error"));
+                });
+    }
+
+    /**
+     * Resolves already-classified ingredients from the local rule engine and the classification store
+     * and only sends the remaining ones to OpenAI. Completes empty when the model gave no usable answer.
+     */
+    private Mono<IngredientAnalysisResult> analyzeUnknownIngredients(List<String> names, String normalizedIngredients) {
+        return classifyKnown(names)
+                .flatMap(known -> {
+                    List<String> unknown = names.stream()
+                            .filter(name -> !known.containsKey(name))
+                            .toList();
+
+                    if (unknown.isEmpty()) {
+                        log.debug("All {} ingredients already classified, skipping OpenAI call", names.size());
+                        return Mono.just(IngredientScoring.summarize(mergeDetails(names, known), ruleEngine::severity));
+                    }
+
+                    log.debug("{} of {} ingredients need classification by OpenAI", unknown.size(), names.size());
+                    return requestAnalysis(known.isEmpty() ? normalizedIngredients : String.join(", ", unknown))
+                            .publishOn(blockingScheduler)
+                            .map(modelResult -> {
+                                Map<String, IngredientAnalysisResult.IngredientDetail> answers = answersFor(unknown, modelResult);
+                                classificationService.record(answers, chatGPTModel, PROMPT_VERSION);
+                                return mergeWithKnown(names, known, answers, modelResult);
+                            });
+                });
+    }
+
+    /**
+     * Classifications already available without asking the model: the classification store, then the
+     * local rule engine. Read on the blocking scheduler.
+     */
+    private Mono<Map<String, IngredientAnalysisResult.IngredientDetail>> classifyKnown(List<String> names) {
+        return Mono.fromCallable(() -> {
+                    Map<String, IngredientAnalysisResult.IngredientDetail> known = new HashMap<>(classificationService.lookup(names, chatGPTModel, PROMPT_VERSION));
+                    if (ruleEnginePrefilter) {
+                        // Curated dictionary entries take precedence over earlier model answers
+                        known.putAll(ruleEngine.classifyKnown(names));
+                    }
+                    return known;
+                })
+                .subscribeOn(blockingScheduler);
+    }
 
-            WebClient webClient = webClientBuilder
-                    .baseUrl(chatGPTApiUrl)
-                    .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + chatGPTApiKey)
-                    .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .build();
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = webClient.post()
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-
-            String content = extractTextFromResponse(response);
-            if (StringUtils.hasText(content)) {
-                log.info("ChatGPT Response: {}", content);
-
-                String cleaned = extractJsonObject(content);
-                return objectMapper.readValue(cleaned, IngredientAnalysisResult.class);
-            } else {
-                log.error("No valid response received from OpenAI API");
-                return createFallbackAnalysis(ingredientsText);
+    private IngredientAnalysisResult mergeWithKnown(List<String> names, Map<String, IngredientAnalysisResult.IngredientDetail> known,
+                                                    Map<String, IngredientAnalysisResult.IngredientDetail> answers,
+                                                    IngredientAnalysisResult modelResult) {
+        if (known.isEmpty()) {
+            return modelResult;
+        }
+        // The model only rated the unknown subset, so the product rating is recomputed over the merged list
+        Map<String, IngredientAnalysisResult.IngredientDetail> merged = new HashMap<>(known);
+        merged.putAll(answers);
+        return IngredientScoring.summarize(mergeDetails(names, merged), ruleEngine::severity);
+    }
+
+    /**
+     * The model's answers keyed by the requested IDs they belong to. Names the model renamed beyond
+     * recognition or added on its own are dropped, so they never reach the result or the shared store.
+     */
+    private Map<String, IngredientAnalysisResult.IngredientDetail> answersFor(List<String> requested,
+                                                                             IngredientAnalysisResult modelResult) {
+        return answersFor(requested, modelResult.getIngredients(), tokenizer::canonicalize);
+    }
+
+    static Map<String, IngredientAnalysisResult.IngredientDetail> answersFor(
+            List<String> requested, List<IngredientAnalysisResult.IngredientDetail> details, UnaryOperator<String> canonicalize) {
+        Map<String, IngredientAnalysisResult.IngredientDetail> answers = indexByName(requested, details, canonicalize);
+        answers.keySet().retainAll(new HashSet<>(requested));
+        return answers;
+    }
+
+    /**
+     * Keys the model's answers by canonical ingredient ID. The model sometimes rewrites names (e.g.
+     * "aqua" -> "Aqua (Water)"), so a requested name without a canonical match may take the answer at its
+     * own position, but only when the answer clearly lines up with the request: same length, every matched
+     * name at its requested position, and that answer not already claimed by another name.
+     */
+    static Map<String, IngredientAnalysisResult.IngredientDetail> indexByName(
+            List<String> requested, List<IngredientAnalysisResult.IngredientDetail> details, UnaryOperator<String> canonicalize) {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = new HashMap<>();
+        if (details == null) {
+            return byName;
+        }
+        String[] canonical = new String[details.size()];
+        for (int i = 0; i < details.size(); i++) {
+            String name = details.get(i).getName();
+            canonical[i] = name != null ? canonicalize.apply(name) : "";
+            byName.putIfAbsent(canonical[i], details.get(i));
+        }
+        if (details.size() != requested.size()) {
+            return byName;
+        }
+
+        Set<String> requestedNames = new HashSet<>(requested);
+        for (int i = 0; i < requested.size(); i++) {
+            if (requestedNames.contains(canonical[i]) && !canonical[i].equals(requested.get(i))) {
+                // Reordered answer: positions say nothing about the unmatched names
+                return byName;
+            }
+        }
+        for (int i = 0; i < requested.size(); i++) {
+            if (!byName.containsKey(requested.get(i)) && !requestedNames.contains(canonical[i])) {
+                byName.put(requested.get(i), details.get(i));
             }
+        }
+        return byName;
+    }
+
+    private List<IngredientAnalysisResult.IngredientDetail> mergeDetails(
+            List<String> names, Map<String, IngredientAnalysisResult.IngredientDetail> byName) {
+        return names.stream()
+                .map(name -> {
+                    IngredientAnalysisResult.IngredientDetail source = byName.get(name);
+                    IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
+                    detail.setName(name);
+                    detail.setClassification(source != null ? source.getClassification() : "uncertain");
+                    detail.setReason(source != null ? source.getReason() : "Not classified");
+                    return detail;
+                })
+                .toList();
+    }
+
+    private Mono<IngredientAnalysisResult> requestAnalysis(String normalizedIngredients) {
+        Map<String, Object> request = buildRequest(normalizedIngredients);
+
+        return Mono.deferContextual(context -> {
+                    long start = System.nanoTime();
+                    return resilience.call(openAiWebClient.post()
+                                    .bodyValue(request)
+                                    .retrieve()
+                                    .bodyToMono(Map.class))
+                            .doOnNext(response -> usageRecorder.record(context, "analysis", PROMPT_VERSION, chatGPTModel, response, start));
+                })
+                .flatMap(response -> {
+                    @SuppressWarnings("unchecked")
+                    String content = extractTextFromResponse((Map<String, Object>) response);
+                    if (!StringUtils.hasText(content)) {
+                        return Mono.<IngredientAnalysisResult>empty();
+                    }
+
+                    log.info("ChatGPT Response: {}", content);
+                    return Mono.fromCallable(() ->
+                            objectMapper.readValue(extractJsonObject(content), IngredientAnalysisResult.class));
+                });
+    }
+
+    /**
+     * Streaming variant of {@link #analyzeIngredientsAsync(String)} using the Responses API streaming mode.
+     * Ingredients already known to the classification store or the rule engine are emitted first; the rest
+     * are streamed from the model, each as soon as it has finished writing it. The final event carries the
+     * complete result with summary and overall rating. Cache hits are replayed from the cached result.
+     * <p>
+     * A failure before anything was emitted is answered with the offline fallback analysis. Once ingredients
+     * have been sent, a failure ends the stream with a failed event instead, so the client never receives a
+     * result that contradicts them and nothing is persisted.
+     */
+    public Flux<IngredientAnalysisStreamEvent> streamAnalysis(String ingredientsText) {
+        List<String> names = normalizeAndTrimIngredients(ingredientsText, 150, 8000);
+        String normalizedIngredients = String.join(", ", names);
+        String cacheKey = resultCache.keyFor(normalizedIngredients, chatGPTModel, PROMPT_VERSION);
+
+        IngredientAnalysisResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Analysis cache hit for key {}", cacheKey);
+            return replay(cached);
+        }
+
+        Deadline deadline = resilience.currentDeadline();
+        TokenUsageRecorder.Attribution attribution = usageRecorder.currentAttribution();
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return classifyKnown(names)
+                    .flatMapMany(known -> {
+                        List<String> unknown = names.stream()
+                                .filter(name -> !known.containsKey(name))
+                                .toList();
+                        if (unknown.isEmpty()) {
+                            log.debug("All {} ingredients already classified, skipping OpenAI call", names.size());
+                            return replay(IngredientScoring.summarize(mergeDetails(names, known), ruleEngine::severity));
+                        }
+                        List<String> classified = names.stream().filter(known::containsKey).toList();
+                        return Flux.fromIterable(mergeDetails(classified, known))
+                                .map(IngredientAnalysisStreamEvent::ingredient)
+                                .concatWith(streamUnknownIngredients(names, known, unknown,
+                                        known.isEmpty() ? normalizedIngredients : String.join(", ", unknown), cacheKey));
+                    })
+                    .doOnNext(event -> emitted.set(true))
+                    .contextWrite(OpenAIResilience.withDeadline(deadline))
+                    .contextWrite(TokenUsageRecorder.withAttribution(attribution))
+                    .onErrorResume(e -> {
+                        if (emitted.get()) {
+                            log.error("OpenAI stream failed after ingredients were sent: {}", e.getMessage(), e);
+                            return Flux.just(IngredientAnalysisStreamEvent.failed("Analysis was interrupted, please retry"));
+                        }
+                        log.error("Error streaming from OpenAI API: {}", e.getMessage(), e);
+                        return Flux.just(IngredientAnalysisStreamEvent.completed(createFallbackAnalysis(ingredientsText, "stream_error")));
+                    });
+        });
+    }
+
+    private Flux<IngredientAnalysisStreamEvent> streamUnknownIngredients(
+            List<String> names, Map<String, IngredientAnalysisResult.IngredientDetail> known, List<String> unknown,
+            String requestedIngredients, String cacheKey) {
+        return Flux.deferContextual(context -> {
+            Map<String, Object> request = buildRequest(requestedIngredients);
+            request.put("stream", true);
+            IngredientStreamParser parser = new IngredientStreamParser();
+            long start = System.nanoTime();
+
+            Flux<IngredientAnalysisStreamEvent> ingredients = resilience.stream(openAiWebClient.post()
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .bodyValue(request)
+                            .retrieve()
+                            .bodyToFlux(SSE_EVENT_TYPE))
+                    .concatMapIterable(event -> parser.feed(extractStreamDelta(event, context, start)))
+                    .handle((json, sink) -> {
+                        try {
+                            sink.next(IngredientAnalysisStreamEvent.ingredient(
+                                    objectMapper.readValue(json, IngredientAnalysisResult.IngredientDetail.class)));
+                        } catch (Exception e) {
+                            log.warn("Skipping unparseable streamed ingredient: {}", json);
+                        }
+                    });
+
+            Mono<IngredientAnalysisStreamEvent> completion = Mono.fromCallable(() -> {
+                        String content = parser.text();
+                        log.info("ChatGPT streamed response: {}", content);
+                        return objectMapper.readValue(extractJsonObject(content), IngredientAnalysisResult.class);
+                    })
+                    .publishOn(blockingScheduler)
+                    .map(modelResult -> {
+                        Map<String, IngredientAnalysisResult.IngredientDetail> answers = answersFor(unknown, modelResult);
+                        classificationService.record(answers, chatGPTModel, PROMPT_VERSION);
+                        IngredientAnalysisResult result = mergeWithKnown(names, known, answers, modelResult);
+                        resultCache.put(cacheKey, result);
+                        return IngredientAnalysisStreamEvent.completed(result);
+                    });
+
+            return ingredients.concatWith(completion);
+        });
+    }
+
+    private Flux<IngredientAnalysisStreamEvent> replay(IngredientAnalysisResult result) {
+        List<IngredientAnalysisResult.IngredientDetail> details =
+                result.getIngredients() != null ? result.getIngredients() : List.of();
+        return Flux.fromIterable(details)
+                .map(IngredientAnalysisStreamEvent::ingredient)
+                .concatWith(Mono.just(IngredientAnalysisStreamEvent.completed(result)));
+    }
 
-        } catch (WebClientResponseException e) {
-            log.error("OpenAI API returned {} with body: {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
-            return createFallbackAnalysis(ingredientsText);
+    /**
+     * Text delta carried by a stream event; the final {@code response.completed} event is recorded for token usage.
+     */
+    private String extractStreamDelta(ServerSentEvent<String> event, ContextView context, long startNanos) {
+        String data = event.data();
+        if (!StringUtils.hasText(data) || "[DONE]".equals(data)) {
+            return "";
+        }
+        try {
+            JsonNode node = objectMapper.readTree(data);
+            String type = node.path("type").asText();
+            if ("response.output_text.delta".equals(type)) {
+                return node.path("delta").asText("");
+            }
+            if ("response.completed".equals(type)) {
+                usageRecorder.record(context, "analysis_stream", PROMPT_VERSION, chatGPTModel, node.path("response"), startNanos);
+            }
         } catch (Exception e) {
-            log.error("Error calling OpenAI API: {}", e.getMessage(), e);
-            return createFallbackAnalysis(ingredientsText);
+            log.debug("Ignoring unparseable stream event: {}", data);
         }
+        return "";
+    }
+
+    private Map<String, Object> buildRequest(String normalizedIngredients) {
+        String prompt = buildPrompt(normalizedIngredients);
+
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", chatGPTModel);
+        request.put("input", List.of(
+                Map.of(
+                        "role", "system",
+                        "content", List.of(
+                                Map.of(
+                                        "type", "input_text",
+                                        "text", "You are an expert in cosmetic and skincare formulation analysis."
+                                )
+                        )
+                ),
+                Map.of(
+                        "role", "user",
+                        "content", List.of(
+                                Map.of(
+                                        "type", "input_text",
+                                        "text", prompt
+                                )
+                        )
+                )
+        ));
+        request.put("max_output_tokens", 2000);
+
+        if (isGpt5Model(chatGPTModel)) {
+            request.put("reasoning", Map.of("effort", "none"));
+        } else {
+            request.put("temperature", chatGPTTemperature);
+        }
+        return request;
     }
 
     private boolean isGpt5Model(String model) {
@@ -188,6 +519,15 @@ public class ChatGPTService {
     }
 
     private String extractJsonObject(String content) throws Exception {
+        try {
+            return findJsonObject(content);
+        } catch (Exception e) {
+            metrics.countJsonExtractionFailure("analysis");
+            throw e;
+        }
+    }
+
+    private String findJsonObject(String content) throws Exception {
         String cleaned = content.trim();
         if (cleaned.startsWith("```json")) {
             cleaned = cleaned.substring(7);
@@ -218,44 +558,32 @@ public class ChatGPTService {
         throw new IllegalArgumentException("No JSON object found in content");
     }
 
-    private String normalizeAndTrimIngredients(String ingredientsText, int maxItems, int maxChars) {
-        if (ingredientsText == null) {
-            return "";
-        }
-        String[] parts = ingredientsText.split(",");
-        List<String> normalized = Arrays.stream(parts)
-                .map(s -> s == null ? "" : s.trim())
-                .filter(s -> !s.isEmpty())
-                .map(String::toLowerCase)
-                .distinct()
-                .limit(maxItems)
-                .toList();
-        String joined = String.join(", ", normalized);
-        if (joined.length() > maxChars) {
-            return joined.substring(0, maxChars);
+    /**
+     * Canonical ingredient IDs of the label, capped at {@code maxItems} names and {@code maxChars} characters
+     * once joined. Whole names are dropped rather than cut, so the list never ends in a partial name.
+     */
+    private List<String> normalizeAndTrimIngredients(String ingredientsText, int maxItems, int maxChars) {
+        List<String> normalized = new ArrayList<>();
+        int joinedLength = 0;
+        for (String name : tokenizer.tokenize(ingredientsText)) {
+            int length = joinedLength + (normalized.isEmpty() ? 0 : 2) + name.length();
+            if (normalized.size() == maxItems || length > maxChars) {
+                break;
+            }
+            normalized.add(name);
+            joinedLength = length;
         }
-        return joined;
+        return normalized;
     }
 
-    private IngredientAnalysisResult createFallbackAnalysis(String ingredientsText) {
-        IngredientAnalysisResult result = new IngredientAnalysisResult();
-
-        // Create a basic analysis when ChatGPT is unavailable
-        List<String> ingredients = Arrays.asList(ingredientsText.split(","));
-        List<IngredientAnalysisResult.IngredientDetail> ingredientDetails = ingredients.stream()
-                .map(ingredient -> {
-                    IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
-                    detail.setName(ingredient.trim());
-                    detail.setClassification("Neutral");
-                    detail.setReason("Unable to analyze - ChatGPT service unavailable");
-                    return detail;
-                })
-                .toList();
-
-        result.setIngredients(ingredientDetails);
-        result.setOverall_rating(5);
-        result.setSummary("Analysis unavailable due to service error. Please try again later.");
-
+    /**
+     * Degraded-mode answer when OpenAI is unavailable: the local rule engine classifies what it knows
+     * and rates the product by the same rules; everything else is reported as uncertain.
+     */
+    private IngredientAnalysisResult createFallbackAnalysis(String ingredientsText, String reason) {
+        metrics.countFallback(reason);
+        IngredientAnalysisResult result = ruleEngine.analyze(ingredientsText);
+        result.setSummary("Offline analysis (AI service unavailable): " + result.getSummary());
         return result;
     }
 }
@@ -1,18 +1,57 @@
 package com.skincare.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.skincare.model.User;
 import com.skincare.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.skincare.security.AuthenticatedUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Loads users for password authentication (always from the database, so the current hash is checked),
+ * stores passwords rehashed after a login with an outdated BCrypt cost, and resolves the principal of
+ * tokens that do not carry the user id and role claims through a bounded cache. Principals built from
+ * claims are checked against a short-lived cache of account state instead. Both caches are evicted by
+ * {@link UserAccountListener} whenever the user row changes.
+ */
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final Cache<String, AuthenticatedUser> principals;
+    // Empty for deleted users, so tokens of a removed account do not query the database on every request
+    private final Cache<Long, Optional<AccountState>> accounts;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${users.cache.max-size:100000}") long maxSize,
+                                    @Value("${users.cache.ttl:10m}") Duration ttl,
+                                    @Value("${users.accounts.max-size:100000}") long accountsMaxSize,
+                                    @Value("${users.accounts.ttl:1m}") Duration accountsTtl) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(accountsMaxSize)
+                .expireAfterWrite(accountsTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "users.principal");
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "users.account");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -20,4 +59,61 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
         return user;
     }
+
+    /**
+     * Called by the authentication provider with the password rehashed at the current cost.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        return userRepository.findByUsername(user.getUsername())
+                .map(existing -> {
+                    existing.setPassword(newPassword);
+                    return (UserDetails) userRepository.save(existing);
+                })
+                .orElse(user);
+    }
+
+    /**
+     * The id, username and role of a user, loaded from the database only on a cache miss.
+     */
+    public AuthenticatedUser loadPrincipal(String username) throws UsernameNotFoundException {
+        AuthenticatedUser principal = principals.get(username, key -> userRepository.findByUsername(key)
+                .map(AuthenticatedUser::of)
+                .orElse(null));
+        if (principal == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        return principal;
+    }
+
+    /**
+     * Whether a principal built from token claims still matches its account: the user exists with the same
+     * username and role, and its token version has not moved since the token was issued at {@code tokenVersion}.
+     */
+    public boolean isCurrent(AuthenticatedUser principal, int tokenVersion) {
+        Optional<AccountState> state = accounts.get(principal.getId(), id -> userRepository.findById(id)
+                .map(AccountState::of));
+        return state.isPresent() && state.get().matches(principal, tokenVersion);
+    }
+
+    public void evict(String username) {
+        principals.invalidate(username);
+    }
+
+    public void evictAccount(Long userId) {
+        accounts.invalidate(userId);
+    }
+
+    private record AccountState(String username, User.Role role, int tokenVersion) {
+
+        static AccountState of(User user) {
+            return new AccountState(user.getUsername(), user.getRole(), user.currentTokenVersion());
+        }
+
+        boolean matches(AuthenticatedUser principal, int issuedVersion) {
+            return username.equals(principal.getUsername())
+                    && role == principal.getRole()
+                    && tokenVersion == issuedVersion;
+        }
+    }
 }
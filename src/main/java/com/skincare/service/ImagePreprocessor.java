@@ -0,0 +1,294 @@
+package com.skincare.service;
+
+import com.skincare.cache.PerceptualHashIndex;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Shrinks label photos before they are sent to the vision model: decodes, applies the EXIF
+ * orientation, downsamples to a maximum dimension, optionally converts to grayscale and re-encodes
+ * as JPEG. Phone photos are far larger than label OCR needs, and every byte costs upload time and
+ * vision tokens. Falls back to the original bytes whenever the result would not be smaller or the
+ * format cannot be decoded.
+ */
+@Component
+@Slf4j
+public class ImagePreprocessor {
+
+    // APP1 segments are limited to 64KB, and EXIF must be the first segment after SOI
+    private static final int EXIF_HEADER_BYTES = 64 * 1024 + 16;
+
+    private final boolean enabled;
+    private final boolean perceptualHashing;
+    private final int maxDimension;
+    private final boolean grayscale;
+    private final float jpegQuality;
+    private final DistributionSummary bytesSaved;
+    private final DistributionSummary decodedBytes;
+
+    public ImagePreprocessor(
+            @Value("${vision.preprocess.enabled:true}") boolean enabled,
+            @Value("${vision.phash.enabled:true}") boolean perceptualHashing,
+            @Value("${vision.preprocess.max-dimension:1600}") int maxDimension,
+            @Value("${vision.preprocess.grayscale:false}") boolean grayscale,
+            @Value("${vision.preprocess.jpeg-quality:0.85}") float jpegQuality,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.perceptualHashing = perceptualHashing;
+        this.maxDimension = maxDimension;
+        this.grayscale = grayscale;
+        this.jpegQuality = jpegQuality;
+        this.bytesSaved = DistributionSummary.builder("vision.image.bytes.saved")
+                .description("Bytes removed from each upload by preprocessing")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.decodedBytes = DistributionSummary.builder("vision.image.decoded.bytes")
+                .description("Heap held by each decoded image raster")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public ProcessedImage process(byte[] original, String contentType) {
+        return process(new ByteArrayResource(original), original.length, contentType);
+    }
+
+    /**
+     * Works from a re-readable source (a multipart part spilled to disk, or an in-memory array) so the
+     * original is never copied into a byte array; only the EXIF header and the sub-sampled decode are held.
+     */
+    public ProcessedImage process(InputStreamSource original, long size, String contentType) {
+        if (!enabled && !perceptualHashing) {
+            return new ProcessedImage(original, size, contentType, null);
+        }
+
+        try {
+            BufferedImage image = decode(original);
+            if (image == null) {
+                log.debug("Unsupported image format {}, sending original", contentType);
+                return new ProcessedImage(original, size, contentType, null);
+            }
+
+            image = applyOrientation(image, readExifOrientation(original));
+            // Hash the upright image so EXIF-rotated and pre-rotated copies of a photo hash alike
+            Long perceptualHash = perceptualHashing ? PerceptualHashIndex.differenceHash(image) : null;
+            if (!enabled) {
+                return new ProcessedImage(original, size, contentType, perceptualHash);
+            }
+
+            image = downsample(image);
+            byte[] encoded = encodeJpeg(image);
+
+            if (encoded.length >= size) {
+                bytesSaved.record(0);
+                return new ProcessedImage(original, size, contentType, perceptualHash);
+            }
+            bytesSaved.record(size - encoded.length);
+            log.info("Preprocessed image {}x{}: {} -> {} bytes", image.getWidth(), image.getHeight(), size, encoded.length);
+            return new ProcessedImage(new ByteArrayResource(encoded), encoded.length, MediaType.IMAGE_JPEG_VALUE, perceptualHash);
+
+        } catch (Exception e) {
+            log.warn("Image preprocessing failed, sending original: {}", e.getMessage());
+            return new ProcessedImage(original, size, contentType, null);
+        }
+    }
+
+    /**
+     * Decodes with source sub-sampling so a 12MP photo is never materialized at full resolution: the
+     * decoded raster is at most about twice {@code maxDimension} on its longest side.
+     */
+    private BufferedImage decode(InputStreamSource source) throws IOException {
+        try (InputStream input = source.getInputStream();
+             ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Largest integer step that still leaves at least maxDimension pixels on the longest side
+                int subsampling = Math.max(1, longestSide / (enabled ? maxDimension : 1024));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                decodedBytes.record((double) image.getWidth() * image.getHeight() * bytesPerPixel(image));
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int bytesPerPixel(BufferedImage image) {
+        return Math.max(1, image.getColorModel().getPixelSize() / 8);
+    }
+
+    private BufferedImage downsample(BufferedImage source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        // Halve repeatedly before the final step; a single large bilinear step aliases fine label text
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, null);
+        }
+        return draw(current, targetWidth, targetHeight, null);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform != null) {
+                graphics.drawImage(source, transform, null);
+            } else {
+                graphics.drawImage(source, 0, 0, width, height, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.translate(w, 0); transform.scale(-1, 1); }
+            case 3 -> { transform.translate(w, h); transform.rotate(Math.PI); }
+            case 4 -> { transform.translate(0, h); transform.scale(1, -1); }
+            case 5 -> { transform.rotate(Math.PI / 2); transform.scale(1, -1); }
+            case 6 -> { transform.translate(h, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.scale(-1, 1); transform.translate(-h, 0); transform.translate(0, w); transform.rotate(3 * Math.PI / 2); }
+            case 8 -> { transform.translate(0, w); transform.rotate(3 * Math.PI / 2); }
+            default -> {
+                return image;
+            }
+        }
+        boolean swapsAxes = orientation >= 5;
+        return draw(image, swapsAxes ? h : w, swapsAxes ? w : h, transform);
+    }
+
+    private static int readExifOrientation(InputStreamSource source) throws IOException {
+        try (InputStream input = source.getInputStream()) {
+            return readExifOrientation(input.readNBytes(EXIF_HEADER_BYTES));
+        }
+    }
+
+    /**
+     * Reads the EXIF orientation tag (0x0112) from a JPEG APP1 segment; returns 1 (normal) when absent.
+     */
+    static int readExifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == 0xDA) {
+                break; // Start of scan: no more metadata segments
+            }
+            if (marker == 0xE1 && offset + 10 <= jpeg.length
+                    && jpeg[offset + 4] == 'E' && jpeg[offset + 5] == 'x' && jpeg[offset + 6] == 'i' && jpeg[offset + 7] == 'f') {
+                return readTiffOrientation(jpeg, offset + 10, Math.min(jpeg.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiffStart, int end) {
+        if (tiffStart + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiffStart] == 'I';
+        int ifdOffset = readInt(data, tiffStart + 4, littleEndian);
+        int ifd = tiffStart + ifdOffset;
+        if (ifdOffset < 8 || ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                int value = readShort(data, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param content        re-readable image content to upload; the original source when preprocessing did not help
+     * @param size           length of {@code content} in bytes
+     * @param perceptualHash 64-bit difference hash of the decoded image, or null if it could not be decoded
+     */
+    public record ProcessedImage(InputStreamSource content, long size, String contentType, Long perceptualHash) {
+    }
+}
@@ -3,13 +3,17 @@ package com.skincare.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.skincare.dto.IngredientAnalysisResult;
+import com.skincare.dto.IngredientAnalysisStreamEvent;
 import com.skincare.model.IngredientAnalysis;
 import com.skincare.model.User;
 import com.skincare.repository.IngredientAnalysisRepository;
-import com.skincare.repository.UserRepository;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
 import java.util.*;
@@ -20,47 +24,120 @@ import java.util.*;
 public class IngredientAnalysisService {
 
     private final IngredientAnalysisRepository analysisRepository;
-    private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final ChatGPTService chatGPTService;
+    private final IngredientRuleEngine ruleEngine;
+    private final IngredientTokenizer tokenizer;
+    private final Scheduler blockingScheduler;
+    private final PipelineMetrics metrics;
 
 
 
-    public IngredientAnalysis analyzeIngredient(String username, String ingredientsText, String productName) throws IOException {
+    /**
+     * @param user the owner of the analysis; a reference such as {@link com.skincare.security.AuthenticatedUser#reference()}
+     *             is enough, the user is not loaded
+     */
+    public IngredientAnalysis analyzeIngredient(User user, String ingredientsText, String productName) throws IOException {
         log.info("Service received productName: {}", productName);
-        
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Split the input text into individual ingredients
-        List<String> ingredients = Arrays.asList(ingredientsText.split(","));
+        Timer.Sample sample = metrics.start();
+        List<String> ingredients = tokenizer.tokenize(ingredientsText);
+        metrics.stop(sample, PipelineMetrics.ANALYSIS, "tokenize", metrics.model(), true);
         
         // Get ChatGPT analysis directly
-        IngredientAnalysisResult chatGPTAnalysis = chatGPTService.analyzeIngredients(ingredientsText);
+        sample = metrics.start();
+        IngredientAnalysisResult chatGPTAnalysis;
+        try {
+            chatGPTAnalysis = chatGPTService.analyzeIngredients(ingredientsText);
+        } catch (RuntimeException e) {
+            metrics.stop(sample, PipelineMetrics.ANALYSIS, "llm", metrics.model(), false);
+            throw e;
+        }
+        metrics.stop(sample, PipelineMetrics.ANALYSIS, "llm", metrics.model(), true);
         
         // Convert ChatGPT rating to safety score (0-1 scale)
         double safetyScore = chatGPTAnalysis.getOverall_rating() / 10.0;
 
-        return createAnalysis(user, ingredients, chatGPTAnalysis, safetyScore, productName);
+        sample = metrics.start();
+        IngredientAnalysis analysis = createAnalysis(user, ingredients, chatGPTAnalysis, safetyScore, productName);
+        metrics.stop(sample, PipelineMetrics.ANALYSIS, "persist", metrics.model(), true);
+        return analysis;
+    }
+
+    /**
+     * Non-blocking variant of {@link #analyzeIngredient(User, String, String)}. No thread is held while
+     * the ChatGPT call is outstanding; the final save runs on the blocking scheduler so JDBC never
+     * blocks the Netty event loop.
+     */
+    public Mono<IngredientAnalysis> analyzeIngredientAsync(User user, String ingredientsText, String productName) {
+        return analyzeIngredientAsync(user, ingredientsText, productName, false);
+    }
+
+    /**
+     * @param fast answer from the local rule engine only; no OpenAI call is made
+     */
+    public Mono<IngredientAnalysis> analyzeIngredientAsync(User user, String ingredientsText, String productName, boolean fast) {
+        log.info("Service received productName: {}", productName);
+
+        String model = fast ? PipelineMetrics.LOCAL_MODEL : metrics.model();
+        Mono<IngredientAnalysisResult> result = fast
+                ? Mono.fromSupplier(() -> ruleEngine.analyze(ingredientsText))
+                : chatGPTService.analyzeIngredientsAsync(ingredientsText);
+
+        return metrics.timed(result, PipelineMetrics.ANALYSIS, fast ? "rules" : "llm", model)
+                .publishOn(blockingScheduler)
+                .flatMap(chatGPTAnalysis -> metrics.timed(Mono.fromCallable(() -> createAnalysis(
+                        user,
+                        tokenizer.tokenize(ingredientsText),
+                        chatGPTAnalysis,
+                        chatGPTAnalysis.getOverall_rating() / 10.0,
+                        productName)), PipelineMetrics.ANALYSIS, "persist", model));
+    }
+
+    /**
+     * Streams per-ingredient results as the model produces them. The analysis is persisted once the
+     * final result arrives, and the last event carries the saved entity. A stream that ends with a
+     * failed event is not persisted.
+     */
+    public Flux<IngredientAnalysisStreamEvent> streamAnalysis(User user, String ingredientsText, String productName) {
+        log.info("Service received productName: {}", productName);
+
+        return metrics.timed(chatGPTService.streamAnalysis(ingredientsText), PipelineMetrics.ANALYSIS, "llm_stream", metrics.model())
+                .concatMap(event -> {
+                    if (!event.isCompleted()) {
+                        return Mono.just(event);
+                    }
+                    IngredientAnalysisResult result = event.getResult();
+                    return metrics.timed(Mono.fromCallable(() -> createAnalysis(
+                                            user,
+                                            tokenizer.tokenize(ingredientsText),
+                                            result,
+                                            result.getOverall_rating() / 10.0,
+                                            productName))
+                                    .subscribeOn(blockingScheduler), PipelineMetrics.ANALYSIS, "persist", metrics.model())
+                            .map(event::withAnalysis);
+                });
     }
 
     private IngredientAnalysis createAnalysis(User user, List<String> ingredients, 
             IngredientAnalysisResult chatGPTAnalysis, double safetyScore, String productName) throws IOException {
         
         // Save analysis to database with simplified structure
+        return analysisRepository.save(buildAnalysis(user, ingredients, chatGPTAnalysis, safetyScore, productName));
+    }
+
+    /**
+     * Builds an unsaved analysis record; shared by the single-row save path and JDBC batch writes.
+     */
+    IngredientAnalysis buildAnalysis(User user, List<String> ingredients,
+            IngredientAnalysisResult chatGPTAnalysis, double safetyScore, String productName) throws IOException {
         IngredientAnalysis analysis = new IngredientAnalysis();
         analysis.setUser(user);
         analysis.setIdentifiedIngredients(objectMapper.writeValueAsString(ingredients));
         analysis.setSafetyAnalysis(objectMapper.writeValueAsString(chatGPTAnalysis)); // Store ChatGPT response directly
         analysis.setSafetyScore(safetyScore);
         analysis.setProductName(productName); // Set the product name
-
-        return analysisRepository.save(analysis);
-    }
-
-    public List<IngredientAnalysis> getUserAnalyses(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return analysisRepository.findByUserOrderByAnalysisDateDesc(user);
+        return analysis;
     }
 }
@@ -0,0 +1,129 @@
+package com.skincare.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skincare.dto.IngredientAnalysisResult;
+import com.skincare.model.IngredientClassification;
+import com.skincare.repository.IngredientClassificationBatchRepository;
+import com.skincare.repository.IngredientClassificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Per-ingredient classification store: a hot in-memory tier in front of the
+ * {@code ingredient_classifications} table. Filled from every LLM answer so that
+ * only ingredients never seen before need to be sent to OpenAI.
+ */
+@Service
+@Slf4j
+public class IngredientClassificationService {
+
+    private static final Set<String> STORABLE_CLASSIFICATIONS = Set.of("good", "bad", "neutral");
+
+    private final IngredientClassificationRepository classificationRepository;
+    private final IngredientClassificationBatchRepository classificationBatchRepository;
+    private final Cache<String, IngredientClassification> hotTier;
+
+    public IngredientClassificationService(
+            IngredientClassificationRepository classificationRepository,
+            IngredientClassificationBatchRepository classificationBatchRepository,
+            @Value("${ingredients.classification.hot-tier-size:20000}") long hotTierSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.classificationRepository = classificationRepository;
+        this.classificationBatchRepository = classificationBatchRepository;
+        this.hotTier = Caffeine.newBuilder()
+                .maximumSize(hotTierSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, hotTier, "ingredient.classification");
+    }
+
+    /**
+     * Returns the known classifications for the given canonical ingredient IDs, keyed by ID.
+     * Names that have never been classified, or were classified by another model or prompt version,
+     * are absent from the result; the next answer for them replaces the stale row.
+     */
+    public Map<String, IngredientAnalysisResult.IngredientDetail> lookup(Collection<String> names, String model, String promptVersion) {
+        Map<String, IngredientClassification> found = new HashMap<>(hotTier.getAllPresent(names));
+
+        List<String> missing = names.stream()
+                .filter(name -> !found.containsKey(name))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            try {
+                for (IngredientClassification classification : classificationRepository.findAllById(missing)) {
+                    hotTier.put(classification.getName(), classification);
+                    found.put(classification.getName(), classification);
+                }
+            } catch (Exception e) {
+                log.warn("Ingredient classification lookup failed, treating {} ingredients as unknown: {}",
+                        missing.size(), e.getMessage());
+            }
+        }
+
+        Map<String, IngredientAnalysisResult.IngredientDetail> details = new HashMap<>();
+        found.forEach((name, classification) -> {
+            if (Objects.equals(classification.getModel(), model) && Objects.equals(classification.getPromptVersion(), promptVersion)) {
+                details.put(name, toDetail(classification));
+            }
+        });
+        return details;
+    }
+
+    /**
+     * Stores every definite (Good/Bad/Neutral) classification from an LLM answer, keyed by the canonical
+     * IDs that were requested (the model's own spelling of a name is never used as a key).
+     * Failures are logged and swallowed: the store is an optimization, never a reason to fail an analysis.
+     */
+    public void record(Map<String, IngredientAnalysisResult.IngredientDetail> answersByRequestedId, String model, String promptVersion) {
+        if (answersByRequestedId == null || answersByRequestedId.isEmpty()) {
+            return;
+        }
+
+        Map<String, IngredientClassification> toSave = new LinkedHashMap<>();
+        answersByRequestedId.forEach((name, detail) -> {
+            String classification = detail.getClassification();
+            if (name == null || name.isEmpty() || classification == null
+                    || !STORABLE_CLASSIFICATIONS.contains(classification.trim().toLowerCase())) {
+                return;
+            }
+            toSave.put(name, IngredientClassification.builder()
+                    .name(name)
+                    .classification(canonicalClassification(classification))
+                    .reason(detail.getReason())
+                    .model(model)
+                    .promptVersion(promptVersion)
+                    .build());
+        });
+        if (toSave.isEmpty()) {
+            return;
+        }
+
+        hotTier.putAll(toSave);
+        try {
+            classificationBatchRepository.upsertAll(toSave.values());
+        } catch (Exception e) {
+            log.warn("Failed to persist {} ingredient classifications: {}", toSave.size(), e.getMessage());
+        }
+    }
+
+    private static String canonicalClassification(String classification) {
+        String lower = classification.trim().toLowerCase();
+        return Character.toUpperCase(lower.charAt(0)) + lower.substring(1);
+    }
+
+    private static IngredientAnalysisResult.IngredientDetail toDetail(IngredientClassification classification) {
+        IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
+        detail.setName(classification.getName());
+        detail.setClassification(classification.getClassification());
+        detail.setReason(classification.getReason());
+        return detail;
+    }
+}
@@ -0,0 +1,67 @@
+package com.skincare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Curated INCI dictionary loaded once at startup: canonical ingredient names with their synonyms,
+ * classification, reason and severity weight, plus family patterns for names it does not list.
+ * Shared by the tokenizer (synonyms to canonical IDs) and the rule engine (classifications).
+ */
+@Component
+@Slf4j
+public class IngredientDictionary {
+
+    private final List<Rule> rules;
+    private final List<PatternRule> patterns;
+
+    public IngredientDictionary(
+            ObjectMapper objectMapper,
+            @Value("${ingredients.rules.dictionary:classpath:ingredients/inci-dictionary.json}") Resource dictionary
+    ) {
+        Contents contents;
+        try (InputStream input = dictionary.getInputStream()) {
+            contents = objectMapper.readValue(input, Contents.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load ingredient dictionary " + dictionary, e);
+        }
+        this.rules = contents.ingredients() != null ? List.copyOf(contents.ingredients()) : List.of();
+        this.patterns = contents.patterns() != null ? List.copyOf(contents.patterns()) : List.of();
+        log.info("Loaded {} ingredient rules and {} pattern rules from {}", rules.size(), patterns.size(), dictionary);
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    public List<PatternRule> patterns() {
+        return patterns;
+    }
+
+    record Contents(List<Rule> ingredients, List<PatternRule> patterns) {
+    }
+
+    public record Rule(String name, List<String> aliases, String classification, String reason, double weight) {
+        public Rule {
+            aliases = aliases != null ? List.copyOf(aliases) : List.of();
+            weight = weight > 0 ? weight : 1.0;
+        }
+    }
+
+    /**
+     * Fallback rule for ingredient families, matched when the name contains the given fragment.
+     */
+    public record PatternRule(String contains, String classification, String reason, double weight) {
+        public PatternRule {
+            weight = weight > 0 ? weight : 1.0;
+        }
+    }
+}
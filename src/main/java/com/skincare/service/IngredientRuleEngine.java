@@ -0,0 +1,110 @@
+package com.skincare.service;
+
+import com.skincare.dto.IngredientAnalysisResult;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local, in-JVM ingredient classifier backed by a curated INCI dictionary. Answers in microseconds
+ * and is used three ways: as the fast-mode analyzer, as the degraded-mode fallback when OpenAI is
+ * unavailable, and as a pre-filter so that only ingredients it does not know are sent to the model.
+ * Ratings follow the same rules as the model prompt via {@link IngredientScoring}, with dictionary
+ * weights marking carcinogens and potent sensitizers as severe.
+ */
+@Component
+public class IngredientRuleEngine {
+
+    static final String UNKNOWN_CLASSIFICATION = "uncertain";
+
+    private final IngredientTokenizer tokenizer;
+    private final Map<String, IngredientDictionary.Rule> rulesByName;
+    private final List<IngredientDictionary.PatternRule> patternRules;
+
+    public IngredientRuleEngine(IngredientDictionary dictionary, IngredientTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        Map<String, IngredientDictionary.Rule> byName = new HashMap<>();
+        for (IngredientDictionary.Rule rule : dictionary.rules()) {
+            byName.putIfAbsent(IngredientTokenizer.normalize(rule.name()), rule);
+        }
+        this.rulesByName = Map.copyOf(byName);
+        this.patternRules = dictionary.patterns();
+    }
+
+    /**
+     * Classifies a single canonical ingredient ID; empty when neither the dictionary nor a pattern matches.
+     */
+    public Optional<IngredientAnalysisResult.IngredientDetail> classify(String name) {
+        return findRule(name).map(rule -> toDetail(name, rule));
+    }
+
+    /**
+     * Returns the classifications the engine knows for the given canonical IDs, keyed by ID.
+     */
+    public Map<String, IngredientAnalysisResult.IngredientDetail> classifyKnown(Collection<String> names) {
+        Map<String, IngredientAnalysisResult.IngredientDetail> known = new LinkedHashMap<>();
+        for (String name : names) {
+            classify(name).ifPresent(detail -> known.put(name, detail));
+        }
+        return known;
+    }
+
+    /**
+     * Full local analysis of an ingredient label. Ingredients the engine does not know are reported as
+     * uncertain and count as neutral in the rating.
+     */
+    public IngredientAnalysisResult analyze(String ingredientsText) {
+        List<String> names = tokenizer.tokenize(ingredientsText);
+
+        List<IngredientAnalysisResult.IngredientDetail> details = names.stream()
+                .map(name -> classify(name).orElseGet(() -> unknown(name)))
+                .toList();
+        return IngredientScoring.summarize(details, this::severity);
+    }
+
+    /**
+     * Severity weight for scoring: the dictionary weight of the ingredient, or 1 when it is not in the dictionary.
+     */
+    public double severity(IngredientAnalysisResult.IngredientDetail detail) {
+        return findRule(tokenizer.canonicalize(detail.getName()))
+                .map(IngredientDictionary.Rule::weight)
+                .orElse(1.0);
+    }
+
+    private Optional<IngredientDictionary.Rule> findRule(String name) {
+        if (name == null || name.isEmpty()) {
+            return Optional.empty();
+        }
+        IngredientDictionary.Rule rule = rulesByName.get(name);
+        if (rule != null) {
+            return Optional.of(rule);
+        }
+        for (IngredientDictionary.PatternRule pattern : patternRules) {
+            if (name.contains(pattern.contains())) {
+                return Optional.of(new IngredientDictionary.Rule(name, List.of(), pattern.classification(), pattern.reason(), pattern.weight()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static IngredientAnalysisResult.IngredientDetail toDetail(String name, IngredientDictionary.Rule rule) {
+        IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
+        detail.setName(name);
+        detail.setClassification(rule.classification());
+        detail.setReason(rule.reason());
+        return detail;
+    }
+
+    private static IngredientAnalysisResult.IngredientDetail unknown(String name) {
+        IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
+        detail.setName(name);
+        detail.setClassification(UNKNOWN_CLASSIFICATION);
+        detail.setReason("Not in the local ingredient dictionary");
+        return detail;
+    }
+}
@@ -0,0 +1,100 @@
+package com.skincare.service;
+
+import com.skincare.dto.IngredientAnalysisResult;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Deterministic product rating computed from per-ingredient classifications.
+ * Mirrors the rules given to the model: ingredients are listed in descending concentration
+ * order so earlier ones weigh more, and harmful ingredients pull the rating down sharply.
+ */
+final class IngredientScoring {
+
+    // Each Bad ingredient near the top of the list costs an extra point on top of its weighted share
+    private static final int HIGH_CONCENTRATION_POSITIONS = 5;
+    private static final double SEVERE = 2.0;
+
+    private IngredientScoring() {
+    }
+
+    static IngredientAnalysisResult summarize(List<IngredientAnalysisResult.IngredientDetail> details) {
+        return summarize(details, detail -> 1.0);
+    }
+
+    /**
+     * @param severity relative weight of each ingredient's classification (1 = ordinary); a Bad ingredient
+     *                 with severity of at least {@value #SEVERE} (carcinogen, potent sensitizer) costs that many
+     *                 points wherever it appears in the list
+     */
+    static IngredientAnalysisResult summarize(List<IngredientAnalysisResult.IngredientDetail> details,
+                                              ToDoubleFunction<IngredientAnalysisResult.IngredientDetail> severity) {
+        IngredientAnalysisResult result = new IngredientAnalysisResult();
+        result.setIngredients(details);
+        result.setOverall_rating(rate(details, severity));
+        result.setSummary(buildSummary(details));
+        return result;
+    }
+
+    static int rate(List<IngredientAnalysisResult.IngredientDetail> details) {
+        return rate(details, detail -> 1.0);
+    }
+
+    static int rate(List<IngredientAnalysisResult.IngredientDetail> details,
+                    ToDoubleFunction<IngredientAnalysisResult.IngredientDetail> severity) {
+        if (details == null || details.isEmpty()) {
+            return 5;
+        }
+
+        double weightedSum = 0;
+        double weightTotal = 0;
+        int penalty = 0;
+        for (int i = 0; i < details.size(); i++) {
+            IngredientAnalysisResult.IngredientDetail detail = details.get(i);
+            double weight = severity.applyAsDouble(detail) / (1.0 + 0.15 * i);
+            int value = classValue(detail.getClassification());
+            weightedSum += weight * value;
+            weightTotal += weight;
+            if (value < 0) {
+                double ingredientSeverity = severity.applyAsDouble(detail);
+                if (ingredientSeverity >= SEVERE) {
+                    penalty += (int) ingredientSeverity;
+                } else if (i < HIGH_CONCENTRATION_POSITIONS) {
+                    penalty++;
+                }
+            }
+        }
+
+        double rating = 5.0 + 4.0 * (weightedSum / weightTotal) - penalty;
+        return (int) Math.max(1, Math.min(10, Math.round(rating)));
+    }
+
+    private static int classValue(String classification) {
+        if ("good".equalsIgnoreCase(classification)) {
+            return 1;
+        }
+        if ("bad".equalsIgnoreCase(classification)) {
+            return -1;
+        }
+        return 0;
+    }
+
+    private static String buildSummary(List<IngredientAnalysisResult.IngredientDetail> details) {
+        long good = details.stream().filter(d -> classValue(d.getClassification()) > 0).count();
+        List<String> bad = details.stream()
+                .filter(d -> classValue(d.getClassification()) < 0)
+                .map(IngredientAnalysisResult.IngredientDetail::getName)
+                .toList();
+        long neutral = details.size() - good - bad.size();
+
+        StringBuilder summary = new StringBuilder(String.format(
+                "%d beneficial, %d potentially harmful and %d neutral ingredients.", good, bad.size(), neutral));
+        if (!bad.isEmpty()) {
+            summary.append(" Watch out for: ")
+                    .append(String.join(", ", bad.subList(0, Math.min(5, bad.size()))))
+                    .append('.');
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.skincare.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally scans streamed model output for complete objects inside the top-level
+ * {@code "ingredients"} array, so each one can be forwarded as soon as its closing brace arrives.
+ * Not thread-safe; use one instance per streamed response.
+ */
+final class IngredientStreamParser {
+
+    private final StringBuilder text = new StringBuilder();
+    private int scanPosition = 0;
+    private boolean inArray = false;
+    private boolean arrayDone = false;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private int depth = 0;
+    private int objectStart = -1;
+
+    /**
+     * Appends a chunk of model output and returns the raw JSON of every ingredient object completed by it.
+     */
+    List<String> feed(String chunk) {
+        text.append(chunk);
+        List<String> completed = new ArrayList<>();
+
+        if (!inArray && !arrayDone && !locateArray()) {
+            return completed;
+        }
+
+        while (inArray && scanPosition < text.length()) {
+            char c = text.charAt(scanPosition);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                if (depth == 0) {
+                    objectStart = scanPosition;
+                }
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0 && objectStart >= 0) {
+                    completed.add(text.substring(objectStart, scanPosition + 1));
+                    objectStart = -1;
+                }
+            } else if (c == ']' && depth == 0) {
+                inArray = false;
+                arrayDone = true;
+            }
+            scanPosition++;
+        }
+        return completed;
+    }
+
+    /**
+     * Everything received so far, for parsing the complete answer once the stream ends.
+     */
+    String text() {
+        return text.toString();
+    }
+
+    private boolean locateArray() {
+        int key = text.indexOf("\"ingredients\"");
+        if (key < 0) {
+            return false;
+        }
+        int bracket = text.indexOf("[", key);
+        if (bracket < 0) {
+            return false;
+        }
+        inArray = true;
+        scanPosition = bracket + 1;
+        return true;
+    }
+}
@@ -0,0 +1,422 @@
+package com.skincare.service;
+
+import com.skincare.util.AhoCorasickMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits free-form ingredient label text into canonical ingredient IDs. Understands parenthesized
+ * alternates ("aqua (water)"), slash synonyms ("parfum/fragrance"), "may contain [+/- CI 77491, ...]"
+ * colorant lists, trade names with their INCI breakdown and a leading "Ingredients:" header. Commas in
+ * chemical locants ("1,2-hexanediol") and inside a dictionary name do not split items. Names and
+ * synonyms from the {@link IngredientDictionary} are found with a single Aho-Corasick pass over the
+ * label and mapped to their canonical name; anything else is kept as its normalized text. Every cache
+ * key, dedupe key and stored ingredient list goes through here so equivalent labels agree.
+ */
+@Component
+@Slf4j
+public class IngredientTokenizer {
+
+    private static final String[] LIST_PREFIXES = {"may contain", "contains", "+/-", "+/ -", "+-", "\u00B1"};
+
+    private final AhoCorasickMatcher matcher;
+    private final String[] canonicalNames;
+
+    public IngredientTokenizer(IngredientDictionary dictionary) {
+        List<String> patterns = new ArrayList<>();
+        List<String> canonical = new ArrayList<>();
+        for (IngredientDictionary.Rule rule : dictionary.rules()) {
+            String name = normalize(rule.name());
+            patterns.add(name);
+            canonical.add(name);
+            for (String alias : rule.aliases()) {
+                patterns.add(normalize(alias));
+                canonical.add(name);
+            }
+        }
+        this.matcher = AhoCorasickMatcher.compile(patterns);
+        this.canonicalNames = canonical.toArray(String[]::new);
+        log.info("Compiled ingredient tokenizer with {} names and synonyms", patterns.size());
+    }
+
+    /**
+     * Returns the distinct canonical ingredient IDs in label order.
+     */
+    public List<String> tokenize(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        char[] buffer = new char[text.length()];
+        int length = normalize(text, buffer);
+        Matches matches = new Matches();
+        matcher.scan(buffer, 0, length, matches);
+        matches.protectSeparators(buffer, length);
+
+        Set<String> tokens = new LinkedHashSet<>();
+        splitItems(buffer, 0, length, matches, tokens);
+        return List.copyOf(tokens);
+    }
+
+    /**
+     * Canonical ID of a single ingredient name, e.g. a name echoed back by the model; empty for blank input.
+     */
+    public String canonicalize(String name) {
+        List<String> tokens = tokenize(name);
+        return tokens.isEmpty() ? "" : tokens.get(0);
+    }
+
+    private void splitItems(char[] buffer, int from, int to, Matches matches, Set<String> tokens) {
+        int depth = 0;
+        int itemStart = from;
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (isOpen(c)) {
+                depth++;
+            } else if (isClose(c)) {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0 && isSplit(buffer, i, matches)) {
+                resolveItem(buffer, itemStart, i, matches, tokens);
+                itemStart = i + 1;
+            }
+        }
+        resolveItem(buffer, itemStart, to, matches, tokens);
+    }
+
+    private void resolveItem(char[] buffer, int from, int to, Matches matches, Set<String> tokens) {
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+        if (start >= end) {
+            return;
+        }
+
+        // "Ingredients: aqua" header
+        int colon = lastTopLevel(buffer, start, end, ':');
+        if (colon >= 0) {
+            start = trimStart(buffer, colon + 1, end);
+        }
+
+        int open = firstTopLevelOpen(buffer, start, end);
+        int primaryStart = start;
+        int primaryEnd = trimEnd(buffer, primaryStart, open >= 0 ? open : end);
+        int unprefixed = stripListPrefixes(buffer, primaryStart, primaryEnd);
+        boolean listPrefix = unprefixed != primaryStart;
+        primaryStart = unprefixed;
+
+        int alternateStart = -1;
+        int alternateEnd = -1;
+        if (open >= 0) {
+            int close = matchingClose(buffer, open, end);
+            if (listPrefix || primaryStart >= primaryEnd || containsTopLevelSeparator(buffer, open + 1, close, matches)) {
+                // "may contain [ci 77491, ci 77492]" or a trade name followed by its INCI breakdown:
+                // the bracket holds ingredients of its own; a trade name is only kept if it is a known INCI name
+                int pattern = primaryStart < primaryEnd ? matches.find(primaryStart, primaryEnd) : -1;
+                if (pattern >= 0) {
+                    tokens.add(canonicalNames[pattern]);
+                }
+                splitItems(buffer, open + 1, close, matches, tokens);
+                return;
+            }
+            alternateStart = trimStart(buffer, open + 1, close);
+            alternateEnd = trimEnd(buffer, alternateStart, close);
+        }
+
+        int pattern = firstAligned(buffer, matches, start, end, primaryStart, primaryEnd, alternateStart, alternateEnd);
+        if (pattern >= 0) {
+            tokens.add(canonicalNames[pattern]);
+        } else if (primaryStart < primaryEnd) {
+            tokens.add(new String(buffer, primaryStart, primaryEnd - primaryStart));
+        } else if (alternateStart >= 0 && alternateStart < alternateEnd) {
+            tokens.add(new String(buffer, alternateStart, alternateEnd - alternateStart));
+        }
+    }
+
+    /**
+     * Finds the dictionary entry that spans a whole segment of the item, in priority order: the full item,
+     * the name before the bracket, the bracketed alternate, then each slash-separated part of either.
+     * Partial matches are ignored so that "behenyl alcohol" is not mistaken for "alcohol".
+     */
+    private static int firstAligned(char[] buffer, Matches matches, int start, int end,
+                                    int primaryStart, int primaryEnd, int alternateStart, int alternateEnd) {
+        int pattern = matches.find(start, end);
+        if (pattern < 0 && primaryStart < primaryEnd) {
+            pattern = matches.find(primaryStart, primaryEnd);
+        }
+        if (pattern < 0 && alternateStart >= 0 && alternateStart < alternateEnd) {
+            pattern = matches.find(alternateStart, alternateEnd);
+        }
+        if (pattern < 0) {
+            pattern = firstAlignedSlashPart(buffer, matches, primaryStart, primaryEnd);
+        }
+        if (pattern < 0 && alternateStart >= 0) {
+            pattern = firstAlignedSlashPart(buffer, matches, alternateStart, alternateEnd);
+        }
+        return pattern;
+    }
+
+    private static int firstAlignedSlashPart(char[] buffer, Matches matches, int from, int to) {
+        int partStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer[i] == '/') {
+                if (partStart > from || i < to) {
+                    int s = trimStart(buffer, partStart, i);
+                    int e = trimEnd(buffer, s, i);
+                    int pattern = s < e ? matches.find(s, e) : -1;
+                    if (pattern >= 0) {
+                        return pattern;
+                    }
+                }
+                partStart = i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int stripListPrefixes(char[] buffer, int start, int end) {
+        boolean stripped = true;
+        while (stripped) {
+            stripped = false;
+            for (String prefix : LIST_PREFIXES) {
+                if (startsWith(buffer, start, end, prefix)) {
+                    start = trimStart(buffer, start + prefix.length(), end);
+                    stripped = true;
+                }
+            }
+        }
+        return start;
+    }
+
+    private static boolean startsWith(char[] buffer, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int firstTopLevelOpen(char[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isOpen(buffer[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int matchingClose(char[] buffer, int open, int to) {
+        int depth = 0;
+        for (int i = open; i < to; i++) {
+            if (isOpen(buffer[i])) {
+                depth++;
+            } else if (isClose(buffer[i]) && --depth == 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int lastTopLevel(char[] buffer, int from, int to, char target) {
+        int depth = 0;
+        int found = -1;
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (isOpen(c)) {
+                depth++;
+            } else if (isClose(c)) {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0 && c == target) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private static boolean containsTopLevelSeparator(char[] buffer, int from, int to, Matches matches) {
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (isOpen(c)) {
+                depth++;
+            } else if (isClose(c)) {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0 && isSplit(buffer, i, matches)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int trimStart(char[] buffer, int from, int to) {
+        while (from < to && isTrimmable(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(char[] buffer, int from, int to) {
+        while (to > from && isTrimmable(buffer[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isTrimmable(char c) {
+        return c == ' ' || c == '*' || c == '.' || c == ':' || c == '"' || c == '\'';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';';
+    }
+
+    /**
+     * Whether the separator at {@code i} ends an item. A comma between two digits is a locant
+     * ("propane-1,3-diol"), and a separator inside a whole-word dictionary match belongs to that name.
+     */
+    private static boolean isSplit(char[] buffer, int i, Matches matches) {
+        char c = buffer[i];
+        if (!isSeparator(c)) {
+            return false;
+        }
+        if (c == ',' && i > 0 && i + 1 < buffer.length && isDigit(buffer[i - 1]) && isDigit(buffer[i + 1])) {
+            return false;
+        }
+        return !matches.isProtected(i);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Characters that may surround a whole ingredient name.
+     */
+    private static boolean isBoundary(char c) {
+        return c == ' ' || c == '/' || isSeparator(c) || isOpen(c) || isClose(c) || isTrimmable(c);
+    }
+
+    private static boolean isOpen(char c) {
+        return c == '(' || c == '[' || c == '{';
+    }
+
+    private static boolean isClose(char c) {
+        return c == ')' || c == ']' || c == '}';
+    }
+
+    static String normalize(String text) {
+        char[] buffer = new char[text.length()];
+        return new String(buffer, 0, normalize(text, buffer));
+    }
+
+    /**
+     * Lower-cases, maps bullets to separators and typographic dashes to '-', collapses whitespace runs
+     * and drops whitespace around '/'. Writes into {@code out} (at least {@code text.length()} long) and
+     * returns the normalized length.
+     */
+    private static int normalize(CharSequence text, char[] out) {
+        int length = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (c == '\u2022' || c == '\u00B7' || c == '|') {
+                c = ',';
+            } else if ((c >= '\u2010' && c <= '\u2015') || c == '\u2212') {
+                c = '-';
+            } else {
+                c = Character.toLowerCase(c);
+            }
+            if (pendingSpace && c != '/' && (length == 0 || out[length - 1] != '/')) {
+                out[length++] = ' ';
+            }
+            pendingSpace = false;
+            out[length++] = c;
+        }
+        return length;
+    }
+
+    /**
+     * Collected automaton matches, kept in the end-offset order the automaton reports them in.
+     */
+    private static final class Matches implements AhoCorasickMatcher.MatchHandler {
+
+        private int[] starts = new int[32];
+        private int[] ends = new int[32];
+        private int[] patterns = new int[32];
+        private int size;
+        // Separator offsets inside a whole-word match; allocated only for labels that have any
+        private boolean[] protectedSeparators;
+
+        @Override
+        public void onMatch(int start, int end, int pattern) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                patterns = Arrays.copyOf(patterns, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            patterns[size] = pattern;
+            size++;
+        }
+
+        /**
+         * Marks the separators covered by a match that starts and ends on a word boundary, so a name such
+         * as "2-bromo-2-nitropropane-1,3-diol" is kept whole while "alcohol" inside a longer name is not.
+         */
+        void protectSeparators(char[] buffer, int length) {
+            for (int m = 0; m < size; m++) {
+                int start = starts[m];
+                int end = ends[m];
+                if ((start > 0 && !isBoundary(buffer[start - 1])) || (end < length && !isBoundary(buffer[end]))) {
+                    continue;
+                }
+                for (int i = start; i < end; i++) {
+                    if (isSeparator(buffer[i])) {
+                        if (protectedSeparators == null) {
+                            protectedSeparators = new boolean[length];
+                        }
+                        protectedSeparators[i] = true;
+                    }
+                }
+            }
+        }
+
+        boolean isProtected(int offset) {
+            return protectedSeparators != null && protectedSeparators[offset];
+        }
+
+        /**
+         * Pattern matching exactly {@code [start, end)}, or -1.
+         */
+        int find(int start, int end) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] < end) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < size && ends[i] == end; i++) {
+                if (starts[i] == start) {
+                    return patterns[i];
+                }
+            }
+            return -1;
+        }
+    }
+}
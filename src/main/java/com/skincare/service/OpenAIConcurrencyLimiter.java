@@ -0,0 +1,265 @@
+package com.skincare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of concurrent OpenAI calls, independently of how many threads (platform or
+ * virtual) are handling requests. The bound adapts to observed latency with a gradient algorithm:
+ * while recent round trips stay close to the long-term average the limit grows, and when they
+ * inflate (the upstream is queueing) it shrinks. Callers beyond the limit wait in a short, bounded
+ * queue; beyond that they are shed with {@link OpenAIOverloadedException} so some requests fail fast
+ * instead of all of them getting slow.
+ */
+@Component
+@Slf4j
+public class OpenAIConcurrencyLimiter {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+
+    // Long-term RTT is an exponential average over roughly this many samples
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final Duration maxQueueWait;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+
+    public OpenAIConcurrencyLimiter(
+            @Value("${chatgpt.limiter.initial-limit:16}") int initialLimit,
+            @Value("${chatgpt.limiter.min-limit:4}") int minLimit,
+            @Value("${chatgpt.max-concurrent-calls:32}") int maxLimit,
+            @Value("${chatgpt.limiter.max-queue-size:64}") int maxQueueSize,
+            @Value("${chatgpt.permit-acquire-timeout:2s}") Duration maxQueueWait,
+            MeterRegistry meterRegistry
+    ) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = maxQueueWait;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("chatgpt.calls.limit", this, OpenAIConcurrencyLimiter::currentLimit)
+                .description("Current adaptive limit on concurrent OpenAI calls")
+                .register(meterRegistry);
+        Gauge.builder("chatgpt.calls.inflight", this, OpenAIConcurrencyLimiter::inFlight)
+                .description("OpenAI calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("chatgpt.calls.waiting", this, OpenAIConcurrencyLimiter::queued)
+                .description("Callers waiting for an OpenAI call slot")
+                .register(meterRegistry);
+        this.rejectedQueueFull = meterRegistry.counter("chatgpt.calls.rejected", "reason", "queue_full");
+        this.rejectedQueueTimeout = meterRegistry.counter("chatgpt.calls.rejected", "reason", "queue_timeout");
+    }
+
+    /**
+     * Subscribes to {@code call} only once a slot is held and releases it when the call terminates or
+     * is cancelled. The call's latency and outcome feed the adaptive limit. Waiting never blocks a thread.
+     */
+    public <T> Mono<T> withPermit(Mono<T> call) {
+        return Mono.usingWhen(
+                acquire(),
+                permit -> call,
+                permit -> Mono.fromRunnable(() -> release(permit, Outcome.SUCCESS)),
+                (permit, error) -> Mono.fromRunnable(() -> release(permit, outcomeOf(error))),
+                permit -> Mono.fromRunnable(() -> release(permit, Outcome.IGNORED))
+        );
+    }
+
+    /**
+     * Streams hold their slot for the whole stream; their duration says little about upstream queueing,
+     * so they do not feed the limit.
+     */
+    public <T> Flux<T> withPermit(Flux<T> call) {
+        return Flux.usingWhen(
+                acquire(),
+                permit -> call,
+                permit -> Mono.fromRunnable(() -> release(permit, Outcome.IGNORED)),
+                (permit, error) -> Mono.fromRunnable(() -> release(permit, outcomeOf(error))),
+                permit -> Mono.fromRunnable(() -> release(permit, Outcome.IGNORED))
+        );
+    }
+
+    /**
+     * Fails fast when a new call could neither run nor queue right now, so controllers can shed a
+     * request before doing any work for it.
+     */
+    public void rejectIfSaturated() {
+        synchronized (lock) {
+            if (inFlight >= (int) limit && waiters.size() >= maxQueueSize) {
+                rejectedQueueFull.increment();
+                throw overloaded();
+            }
+        }
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    Waiter waiter;
+                    synchronized (lock) {
+                        if (inFlight < (int) limit) {
+                            inFlight++;
+                            sink.success(new Permit(System.nanoTime()));
+                            return;
+                        }
+                        if (waiters.size() >= maxQueueSize) {
+                            rejectedQueueFull.increment();
+                            sink.error(overloaded());
+                            return;
+                        }
+                        waiter = new Waiter(sink);
+                        waiters.add(waiter);
+                    }
+                    sink.onCancel(() -> cancel(waiter));
+                })
+                .timeout(maxQueueWait)
+                .onErrorMap(TimeoutException.class, e -> {
+                    rejectedQueueTimeout.increment();
+                    return overloaded();
+                });
+    }
+
+    private void cancel(Waiter waiter) {
+        if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+            synchronized (lock) {
+                waiters.remove(waiter);
+            }
+        } else if (waiter.state.get() == GRANTED) {
+            // Granted in the same instant the caller gave up; hand the slot on
+            release(waiter.permit, Outcome.IGNORED);
+        }
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (lock) {
+            int inFlightAtRelease = inFlight;
+            inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                onSample(System.nanoTime() - permit.startNanos(), inFlightAtRelease);
+            } else if (outcome == Outcome.DROPPED) {
+                limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            }
+
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                Waiter waiter = waiters.poll();
+                if (waiter.state.compareAndSet(WAITING, GRANTED)) {
+                    inFlight++;
+                    waiter.permit = new Permit(System.nanoTime());
+                    granted.add(waiter);
+                }
+            }
+        }
+        granted.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    /**
+     * Gradient update: the ratio of long-term to current RTT scales the limit down when calls are
+     * getting slower, and a square-root headroom term lets it probe upwards when they are not.
+     */
+    private void onSample(long rttNanos, int inFlightAtRelease) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        // After a sustained slowdown the average lags far behind; pull it toward the new normal
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // Application-limited: too little load to learn anything about the upstream
+        if (inFlightAtRelease < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        double previous = limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        if ((int) limit != (int) previous) {
+            log.debug("OpenAI concurrency limit {} -> {} (rtt {}ms, long rtt {}ms)",
+                    (int) previous, (int) limit, rttNanos / 1_000_000, (long) longRttNanos / 1_000_000);
+        }
+    }
+
+    private Outcome outcomeOf(Throwable error) {
+        // Timeouts and 429s mean the upstream is saturated; back off like a dropped packet
+        if (error instanceof TimeoutException
+                || (error instanceof WebClientResponseException response
+                && response.getStatusCode().value() == 429)) {
+            return Outcome.DROPPED;
+        }
+        return Outcome.IGNORED;
+    }
+
+    private OpenAIOverloadedException overloaded() {
+        // Suggest coming back after about one typical call has drained
+        long seconds = Math.max(1, (long) Math.ceil(longRttNanos / 1_000_000_000.0));
+        return new OpenAIOverloadedException("OpenAI call capacity exhausted", Duration.ofSeconds(seconds));
+    }
+
+    private double currentLimit() {
+        synchronized (lock) {
+            return (int) limit;
+        }
+    }
+
+    private double inFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    private double queued() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, DROPPED, IGNORED
+    }
+
+    private record Permit(long startNanos) {
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Permit permit;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.skincare.service;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Decides which OpenAI call failures mean the upstream is unhealthy: timeouts, connection errors,
+ * 429 and 5xx. Other 4xx responses are caller errors and neither trip the circuit breaker nor retry.
+ * Referenced by name from the {@code resilience4j.circuitbreaker.instances.openai} configuration.
+ */
+public class OpenAIFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        return isUpstreamFailure(throwable);
+    }
+
+    static boolean isUpstreamFailure(Throwable throwable) {
+        if (throwable instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return throwable instanceof WebClientRequestException
+                || throwable instanceof TimeoutException
+                || throwable instanceof IOException;
+    }
+}
@@ -0,0 +1,20 @@
+package com.skincare.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the OpenAI call limit is saturated and the wait queue is full or waited too long.
+ * Surfaces as 503 with a Retry-After header instead of letting every request slow down together.
+ */
+@Getter
+public class OpenAIOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OpenAIOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,149 @@
+package com.skincare.service;
+
+import com.skincare.util.Deadline;
+import com.skincare.util.RetryBudget;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Resilience layer for every OpenAI call: the concurrency permit, a circuit breaker that fails fast
+ * while the upstream is erroring or slow, per-attempt timeouts bounded by the caller's
+ * {@link Deadline}, and jittered retries drawn from a global {@link RetryBudget}. Breaker state and
+ * call timings are published through the actuator circuitbreakers endpoints and metrics.
+ */
+@Component
+@Slf4j
+public class OpenAIResilience {
+
+    private final OpenAIConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    private final Duration attemptTimeout;
+    private final Duration defaultDeadline;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final Counter retries;
+    private final Counter retriesDenied;
+
+    public OpenAIResilience(
+            OpenAIConcurrencyLimiter concurrencyLimiter,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            @Value("${chatgpt.resilience.attempt-timeout:45s}") Duration attemptTimeout,
+            @Value("${chatgpt.resilience.default-deadline:90s}") Duration defaultDeadline,
+            @Value("${chatgpt.resilience.max-retries:2}") int maxRetries,
+            @Value("${chatgpt.resilience.retry-backoff:250ms}") Duration retryBackoff,
+            @Value("${chatgpt.resilience.retry-budget.ratio:0.1}") double retryBudgetRatio,
+            @Value("${chatgpt.resilience.retry-budget.min-per-second:2}") int minRetriesPerSecond,
+            MeterRegistry meterRegistry
+    ) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("openai");
+        this.retryBudget = new RetryBudget(retryBudgetRatio, minRetriesPerSecond);
+        this.attemptTimeout = attemptTimeout;
+        this.defaultDeadline = defaultDeadline;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.retries = meterRegistry.counter("chatgpt.retries", "outcome", "attempted");
+        this.retriesDenied = meterRegistry.counter("chatgpt.retries", "outcome", "budget_exhausted");
+
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("OpenAI circuit breaker {}", event.getStateTransition()));
+    }
+
+    /**
+     * Deadline of the inbound request on the calling thread. Capture it on the request thread and
+     * attach it with {@link #withDeadline(Deadline)}; work that runs later on other threads (or is
+     * shared through single-flight) no longer sees the request.
+     */
+    public Deadline currentDeadline() {
+        return Deadline.current(defaultDeadline);
+    }
+
+    public static Function<Context, Context> withDeadline(Deadline deadline) {
+        return context -> context.hasKey(Deadline.class) ? context : context.put(Deadline.class, deadline);
+    }
+
+    /**
+     * Runs a single-response call with retries. {@code call} must be re-subscribable; each retry
+     * subscribes to it again.
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = deadlineOf(context);
+            if (deadline.isExpired()) {
+                return Mono.error(new TimeoutException("Request deadline exceeded before calling OpenAI"));
+            }
+            retryBudget.recordRequest();
+
+            Mono<T> attempt = concurrencyLimiter.withPermit(Mono.defer(() -> call.timeout(attemptTimeout(deadline)))
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
+
+            return attempt
+                    .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                            .maxBackoff(retryBackoff.multipliedBy(8))
+                            .jitter(0.5)
+                            .filter(e -> shouldRetry(e, deadline))
+                            .doBeforeRetry(signal -> log.info("Retrying OpenAI call after {} (attempt {})",
+                                    signal.failure().toString(), signal.totalRetries() + 2))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                    .timeout(deadline.remaining());
+        });
+    }
+
+    /**
+     * Runs a streaming call. Not retried, since items may already have reached the client; the
+     * deadline bounds the whole stream rather than each item.
+     */
+    public <T> Flux<T> stream(Flux<T> call) {
+        return Flux.deferContextual(context -> {
+            Deadline deadline = deadlineOf(context);
+            if (deadline.isExpired()) {
+                return Flux.error(new TimeoutException("Request deadline exceeded before calling OpenAI"));
+            }
+            return concurrencyLimiter.withPermit(call
+                    .timeout(Mono.delay(deadline.remaining()), item -> Mono.delay(deadline.remaining()))
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
+        });
+    }
+
+    private boolean shouldRetry(Throwable failure, Deadline deadline) {
+        if (!OpenAIFailurePredicate.isUpstreamFailure(failure)) {
+            return false;
+        }
+        // Not worth starting an attempt that cannot finish before the caller gives up
+        if (deadline.remaining().compareTo(retryBackoff.multipliedBy(2)) < 0) {
+            return false;
+        }
+        if (!retryBudget.tryRetry()) {
+            retriesDenied.increment();
+            log.warn("OpenAI retry budget exhausted, failing after {}", failure.toString());
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    private Duration attemptTimeout(Deadline deadline) {
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(attemptTimeout) < 0 ? remaining : attemptTimeout;
+    }
+
+    private Deadline deadlineOf(ContextView context) {
+        return context.getOrDefault(Deadline.class, Deadline.after(defaultDeadline));
+    }
+}
@@ -1,36 +1,53 @@
 package com.skincare.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skincare.cache.PerceptualHashIndex;
+import com.skincare.util.Deadline;
+import com.skincare.util.RequestEndpoint;
+import com.skincare.util.SingleFlight;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.util.Base64;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OpenAIVisionService {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient openAiWebClient;
     private final ObjectMapper objectMapper;
-
-    @Value("${chatgpt.api.url}")
-    private String chatGPTApiUrl;
-
-    @Value("${chatgpt.api.key}")
-    private String chatGPTApiKey;
+    private final OpenAIResilience resilience;
+    private final ImagePreprocessor imagePreprocessor;
+    private final PerceptualHashIndex perceptualHashIndex;
+    private final IngredientTokenizer tokenizer;
+    private final TokenUsageRecorder usageRecorder;
+    private final PipelineMetrics metrics;
+    private final SingleFlight<String, String> inFlightExtractions = new SingleFlight<>();
 
     @Value("${chatgpt.model}")
     private String chatGPTModel;
@@ -102,67 +119,151 @@ public class OpenAIVisionService {
 //    }
 
     public String extractIngredientsFromImage(MultipartFile imageFile) throws IOException {
-        try {
-            // Convert image to base64
-            String base64Image = Base64.getEncoder().encodeToString(imageFile.getBytes());
-            String contentType = StringUtils.hasText(imageFile.getContentType())
-                    ? imageFile.getContentType()
-                    : MediaType.IMAGE_JPEG_VALUE;
-            String imageDataUrl = "data:" + contentType + ";base64," + base64Image;
-
-            Map<String, Object> input = Map.of(
-                    "role", "user",
-                    "content", List.of(
-                            Map.of(
-                                    "type", "input_text",
-                                    "text", "Extract ONLY ingredient names from this skincare label image. Return strictly as a JSON array. No explanation. Example: [\"water\", \"niacinamide\"]"
-                            ),
-                            Map.of(
-                                    "type", "input_image",
-                                    "image_url", imageDataUrl
-                            )
-                    )
-            );
-
-            Map<String, Object> request = new LinkedHashMap<>();
-            request.put("model", chatGPTModel);
-            request.put("input", List.of(input));
-            request.put("max_output_tokens", 800);
-
-            if (isGpt5Model(chatGPTModel)) {
-                request.put("reasoning", Map.of("effort", "none"));
-            } else {
-                request.put("temperature", chatGPTTemperature);
-            }
+        return extractIngredientsFromImageAsync(imageFile).block();
+    }
 
-            WebClient webClient = webClientBuilder
-                    .baseUrl(chatGPTApiUrl)
-                    .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + chatGPTApiKey)
-                    .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .build();
+    /**
+     * Non-blocking variant of {@link #extractIngredientsFromImage(MultipartFile)}. The upload is never
+     * copied into a byte array: it is hashed and decoded from the multipart part (spilled to disk above
+     * the configured threshold) and streamed into the request body. The vision call itself does not
+     * hold a thread while outstanding.
+     */
+    public Mono<String> extractIngredientsFromImageAsync(MultipartFile imageFile) throws IOException {
+        return extractIngredientsFromImageAsync(imageFile, imageFile.getSize(), imageFile.getContentType());
+    }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = webClient.post()
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-
-            String content = extractTextFromResponse(response);
-            if (StringUtils.hasText(content)) {
-                log.info("Vision extraction result: {}", content);
-                return parseAndCleanIngredients(content);
+    public Mono<String> extractIngredientsFromImageAsync(byte[] imageBytes, String imageContentType) {
+        return extractIngredientsFromImageAsync(new ByteArrayResource(imageBytes), imageBytes.length, imageContentType);
+    }
+
+    private Mono<String> extractIngredientsFromImageAsync(InputStreamSource image, long size, String imageContentType) {
+        String contentType = StringUtils.hasText(imageContentType)
+                ? imageContentType
+                : MediaType.IMAGE_JPEG_VALUE;
+
+        metrics.recordUpload(size);
+        String endpoint = RequestEndpoint.current();
+
+        // Identical uploads arriving concurrently share a single vision call (and a single preprocessing pass)
+        Timer.Sample sample = metrics.start();
+        String imageKey = sha256Hex(image);
+        metrics.stop(sample, PipelineMetrics.VISION, "hash", metrics.model(), true);
+        Deadline deadline = resilience.currentDeadline();
+        TokenUsageRecorder.Attribution attribution = usageRecorder.currentAttribution();
+        return Mono.defer(() -> Mono.fromFuture(inFlightExtractions.execute(imageKey, () -> {
+            Timer.Sample preprocessing = metrics.start();
+            ImagePreprocessor.ProcessedImage processed;
+            try {
+                processed = imagePreprocessor.process(image, size, contentType);
+            } catch (RuntimeException e) {
+                metrics.stop(preprocessing, PipelineMetrics.VISION, "preprocess", metrics.model(), endpoint, "error");
+                throw e;
+            }
+            metrics.stop(preprocessing, PipelineMetrics.VISION, "preprocess", metrics.model(), endpoint, "success");
+            Long perceptualHash = processed.perceptualHash();
+            if (perceptualHash == null) {
+                return extractIngredients(processed, endpoint)
+                        .contextWrite(OpenAIResilience.withDeadline(deadline))
+                        .contextWrite(TokenUsageRecorder.withAttribution(attribution))
+                        .toFuture();
             }
 
-            log.error("No valid response received from OpenAI API");
-            throw new RuntimeException("Failed to extract ingredients from image");
+            // A re-shot or re-encoded photo of an already analyzed label reuses the earlier extraction
+            Optional<String> known = perceptualHashIndex.lookup(perceptualHash);
+            if (known.isPresent()) {
+                log.info("Perceptual hash {} matched a previous extraction, skipping vision call", Long.toHexString(perceptualHash));
+                return CompletableFuture.completedFuture(known.get());
+            }
+            return extractIngredients(processed, endpoint)
+                    .doOnNext(ingredients -> perceptualHashIndex.put(perceptualHash, ingredients))
+                    .contextWrite(OpenAIResilience.withDeadline(deadline))
+                    .contextWrite(TokenUsageRecorder.withAttribution(attribution))
+                    .toFuture();
+        }), true));
+    }
 
-        } catch (WebClientResponseException e) {
-            log.error("OpenAI API returned {} with body: {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
-            throw new RuntimeException("Failed to extract ingredients: " + e.getResponseBodyAsString(), e);
-        } catch (Exception e) {
-            log.error("Error calling OpenAI API: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to extract ingredients: " + e.getMessage(), e);
+    private Mono<String> extractIngredients(ImagePreprocessor.ProcessedImage image, String endpoint) {
+        VisionRequestBody body = VisionRequestBody.create(objectMapper, this::buildRequest,
+                image.content(), image.size(), image.contentType());
+
+        Mono<Map> call = Mono.deferContextual(context -> {
+            long start = System.nanoTime();
+            return resilience.call(openAiWebClient.post()
+                            .contentLength(body.contentLength())
+                            .body(BodyInserters.fromDataBuffers(body.content()))
+                            .retrieve()
+                            .bodyToMono(Map.class))
+                    .doOnNext(response -> usageRecorder.record(context, "vision", null, chatGPTModel, response, start));
+        });
+
+        return metrics.timed(call, PipelineMetrics.VISION, "call", metrics.model(), endpoint)
+                .map(response -> {
+                    @SuppressWarnings("unchecked")
+                    String content = extractTextFromResponse((Map<String, Object>) response);
+                    if (StringUtils.hasText(content)) {
+                        log.info("Vision extraction result: {}", content);
+                        Timer.Sample parsing = metrics.start();
+                        String outcome = "error";
+                        try {
+                            String ingredients = parseAndCleanIngredients(content);
+                            outcome = "success";
+                            return ingredients;
+                        } finally {
+                            metrics.stop(parsing, PipelineMetrics.VISION, "parse", metrics.model(), endpoint, outcome);
+                        }
+                    }
+
+                    log.error("No valid response received from OpenAI API");
+                    throw new RuntimeException("Failed to extract ingredients from image");
+                })
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Failed to extract ingredients from image")))
+                .onErrorMap(e -> !(e instanceof OpenAIOverloadedException), e -> {
+                    if (e instanceof WebClientResponseException responseException) {
+                        log.error("OpenAI API returned {} with body: {}", responseException.getStatusCode(),
+                                responseException.getResponseBodyAsString(), e);
+                        return new RuntimeException("Failed to extract ingredients: " + responseException.getResponseBodyAsString(), e);
+                    }
+                    log.error("Error calling OpenAI API: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to extract ingredients: " + e.getMessage(), e);
+                });
+    }
+
+    private Map<String, Object> buildRequest(String imageDataUrl) {
+        Map<String, Object> input = Map.of(
+                "role", "user",
+                "content", List.of(
+                        Map.of(
+                                "type", "input_text",
+                                "text", "Extract ONLY ingredient names from this skincare label image. Return strictly as a JSON array. No explanation. Example: [\"water\", \"niacinamide\"]"
+                        ),
+                        Map.of(
+                                "type", "input_image",
+                                "image_url", imageDataUrl
+                        )
+                )
+        );
+
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", chatGPTModel);
+        request.put("input", List.of(input));
+        request.put("max_output_tokens", 800);
+
+        if (isGpt5Model(chatGPTModel)) {
+            request.put("reasoning", Map.of("effort", "none"));
+        } else {
+            request.put("temperature", chatGPTTemperature);
+        }
+        return request;
+    }
+
+    private String sha256Hex(InputStreamSource source) {
+        try (InputStream input = new DigestInputStream(source.getInputStream(), MessageDigest.getInstance("SHA-256"))) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(((DigestInputStream) input).getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read uploaded image", e);
         }
     }
 
@@ -235,8 +336,7 @@ public class OpenAIVisionService {
 
             // Clean and normalize ingredients
             List<String> cleanedIngredients = ingredients.stream()
-                    .map(ingredient -> ingredient.toString().toLowerCase().trim())
-                    .filter(ingredient -> !ingredient.isEmpty())
+                    .flatMap(ingredient -> tokenizer.tokenize(String.valueOf(ingredient)).stream())
                     .distinct()
                     .toList();
 
@@ -244,6 +344,7 @@ public class OpenAIVisionService {
             return String.join(", ", cleanedIngredients);
 
         } catch (Exception e) {
+            metrics.countJsonExtractionFailure("vision");
             log.error("Error parsing ingredients from vision response: {}", e.getMessage());
             throw new RuntimeException("Failed to parse ingredients from image: " + e.getMessage());
         }
@@ -0,0 +1,114 @@
+package com.skincare.service;
+
+import com.skincare.util.RequestEndpoint;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Stage timers for the analysis and vision pipelines, published as {@code <pipeline>.stage} with
+ * {@code stage}, {@code model}, {@code endpoint} and {@code outcome} tags. Every timer of a pipeline
+ * carries the same tag keys, as Prometheus requires. The endpoint is resolved when a stage is
+ * assembled on the request thread, since reactive stages finish on other threads.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String ANALYSIS = "analysis";
+    public static final String VISION = "vision";
+
+    // Model tag for stages answered by the local rule engine
+    public static final String LOCAL_MODEL = "rules";
+
+    private final MeterRegistry meterRegistry;
+    private final String model;
+
+    public PipelineMetrics(MeterRegistry meterRegistry, @Value("${chatgpt.model:}") String model) {
+        this.meterRegistry = meterRegistry;
+        this.model = StringUtils.hasText(model) ? model : "unknown";
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stops a synchronous stage that ran on the request (or worker) thread.
+     */
+    public void stop(Timer.Sample sample, String pipeline, String stage, String model, boolean success) {
+        stop(sample, pipeline, stage, model, RequestEndpoint.current(), success ? "success" : "error");
+    }
+
+    /**
+     * Times a reactive stage from subscription until it completes, fails or is cancelled.
+     */
+    public <T> Mono<T> timed(Mono<T> stage, String pipeline, String name, String model) {
+        return timed(stage, pipeline, name, model, RequestEndpoint.current());
+    }
+
+    public <T> Mono<T> timed(Mono<T> stage, String pipeline, String name, String model, String endpoint) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = start();
+            return stage.doFinally(signal -> stop(sample, pipeline, name, model, endpoint, outcome(signal)));
+        });
+    }
+
+    public <T> Flux<T> timed(Flux<T> stage, String pipeline, String name, String model) {
+        String endpoint = RequestEndpoint.current();
+        return Flux.defer(() -> {
+            Timer.Sample sample = start();
+            return stage.doFinally(signal -> stop(sample, pipeline, name, model, endpoint, outcome(signal)));
+        });
+    }
+
+    public void stop(Timer.Sample sample, String pipeline, String stage, String model, String endpoint, String outcome) {
+        sample.stop(meterRegistry.timer(pipeline + ".stage",
+                "stage", stage,
+                "model", model,
+                "endpoint", endpoint,
+                "outcome", outcome));
+    }
+
+    /**
+     * Size of an uploaded label image as received, before any preprocessing.
+     */
+    public void recordUpload(long bytes) {
+        DistributionSummary.builder("analysis.upload.size")
+                .baseUnit("bytes")
+                .tag("endpoint", RequestEndpoint.current())
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * An analysis answered by the local rule engine because the model could not be used.
+     */
+    public void countFallback(String reason) {
+        meterRegistry.counter("chatgpt.fallbacks", "reason", reason, "model", model).increment();
+    }
+
+    /**
+     * Model output that did not contain the JSON the prompt asked for.
+     */
+    public void countJsonExtractionFailure(String operation) {
+        meterRegistry.counter("chatgpt.json.extraction.failures", "operation", operation, "model", model).increment();
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+    }
+}
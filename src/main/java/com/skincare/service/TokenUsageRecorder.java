@@ -0,0 +1,216 @@
+package com.skincare.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skincare.dto.ChatGPTResponse;
+import com.skincare.model.TokenUsage;
+import com.skincare.repository.TokenUsageRepository;
+import com.skincare.util.RequestEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Accounts for the tokens and latency of every OpenAI call, attributed to the user and endpoint that
+ * caused it. Totals are aggregated in memory per (user, endpoint, model, operation) and flushed
+ * periodically as one row per key to {@code openai_token_usage}; token counters (without the user,
+ * to keep cardinality bounded) go to Micrometer as they happen. Cached input tokens are a subset of
+ * input tokens.
+ * <p>
+ * Like the request {@link com.skincare.util.Deadline}, the attribution is captured on the request
+ * thread and carried into the reactive call through the Reactor context, so calls shared through
+ * single-flight are charged to the request that made them.
+ */
+@Component
+@Slf4j
+public class TokenUsageRecorder {
+
+    private static final ThreadLocal<Attribution> BOUND = new ThreadLocal<>();
+
+    private final TokenUsageRepository usageRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<Key, Totals> pending = new ConcurrentHashMap<>();
+    private volatile LocalDateTime windowStart = LocalDateTime.now();
+
+    public TokenUsageRecorder(TokenUsageRepository usageRepository, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.usageRepository = usageRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public record Attribution(String username, String endpoint) {
+    }
+
+    /**
+     * Who to charge for calls made from the calling thread: the work bound with {@link #callAs}, else the
+     * authenticated user and matched endpoint of the current request, else an anonymous background caller.
+     */
+    public Attribution currentAttribution() {
+        Attribution bound = BOUND.get();
+        if (bound != null) {
+            return bound;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication != null && authentication.isAuthenticated() ? authentication.getName() : "anonymous";
+        return new Attribution(username, RequestEndpoint.current());
+    }
+
+    public static Function<Context, Context> withAttribution(Attribution attribution) {
+        return context -> context.hasKey(Attribution.class) ? context : context.put(Attribution.class, attribution);
+    }
+
+    /**
+     * Runs work outside of a request (e.g. a queued job) charged to the given user and endpoint.
+     */
+    public <T> T callAs(Attribution attribution, Callable<T> work) throws Exception {
+        Attribution previous = BOUND.get();
+        BOUND.set(attribution);
+        try {
+            return work.call();
+        } finally {
+            if (previous != null) {
+                BOUND.set(previous);
+            } else {
+                BOUND.remove();
+            }
+        }
+    }
+
+    /**
+     * Records a non-streamed Responses API reply.
+     */
+    public void record(ContextView context, String operation, String promptVersion, String configuredModel,
+                       Map<?, ?> response, long startNanos) {
+        if (response == null) {
+            return;
+        }
+        ChatGPTResponse.Usage usage = response.get("usage") != null
+                ? objectMapper.convertValue(response.get("usage"), ChatGPTResponse.Usage.class)
+                : null;
+        Object model = response.get("model");
+        record(context, operation, promptVersion, model != null ? model.toString() : configuredModel, usage, startNanos);
+    }
+
+    /**
+     * Records the {@code response} object of a streamed {@code response.completed} event.
+     */
+    public void record(ContextView context, String operation, String promptVersion, String configuredModel,
+                       JsonNode response, long startNanos) {
+        JsonNode usageNode = response.path("usage");
+        ChatGPTResponse.Usage usage = usageNode.isObject()
+                ? objectMapper.convertValue(usageNode, ChatGPTResponse.Usage.class)
+                : null;
+        String model = response.path("model").asText(configuredModel);
+        record(context, operation, promptVersion, model, usage, startNanos);
+    }
+
+    private void record(ContextView context, String operation, String promptVersion, String model,
+                        ChatGPTResponse.Usage usage, long startNanos) {
+        Attribution attribution = context.getOrDefault(Attribution.class, new Attribution("anonymous", RequestEndpoint.BACKGROUND));
+        String modelName = StringUtils.hasText(model) ? model : "unknown";
+        long latencyNanos = System.nanoTime() - startNanos;
+        int input = usage != null ? usage.inputTokens() : 0;
+        int cached = usage != null ? usage.cachedInputTokens() : 0;
+        int output = usage != null ? usage.outputTokens() : 0;
+
+        Key key = new Key(attribution.username(), attribution.endpoint(), modelName, operation, promptVersion);
+        // compute() serializes with the flush's remove() for the same key, so no increment is lost
+        pending.compute(key, (k, totals) -> (totals != null ? totals : new Totals()).add(input, cached, output, latencyNanos));
+
+        meterRegistry.counter("chatgpt.tokens", "type", "input", "model", modelName, "endpoint", attribution.endpoint())
+                .increment(input);
+        meterRegistry.counter("chatgpt.tokens", "type", "cached_input", "model", modelName, "endpoint", attribution.endpoint())
+                .increment(cached);
+        meterRegistry.counter("chatgpt.tokens", "type", "output", "model", modelName, "endpoint", attribution.endpoint())
+                .increment(output);
+        meterRegistry.timer("chatgpt.call.latency", "model", modelName, "operation", operation)
+                .record(Duration.ofNanos(latencyNanos));
+        if (usage == null) {
+            log.debug("OpenAI {} response carried no usage block", operation);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chatgpt.usage.flush-interval:60000}")
+    public void flush() {
+        LocalDateTime start = windowStart;
+        LocalDateTime end = LocalDateTime.now();
+        windowStart = end;
+
+        List<TokenUsage> rows = new ArrayList<>();
+        for (Key key : List.copyOf(pending.keySet())) {
+            Totals totals = pending.remove(key);
+            if (totals == null) {
+                continue;
+            }
+            rows.add(TokenUsage.builder()
+                    .windowStart(start)
+                    .windowEnd(end)
+                    .username(key.username())
+                    .endpoint(key.endpoint())
+                    .model(key.model())
+                    .operation(key.operation())
+                    .promptVersion(key.promptVersion())
+                    .calls(totals.calls)
+                    .inputTokens(totals.inputTokens)
+                    .cachedInputTokens(totals.cachedInputTokens)
+                    .outputTokens(totals.outputTokens)
+                    .latencyMillis(totals.latencyNanos / 1_000_000)
+                    .build());
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            usageRepository.saveAll(rows);
+            log.debug("Flushed {} token usage rows", rows.size());
+        } catch (Exception e) {
+            // Accounting must never break analysis; the window is lost rather than retried forever
+            log.error("Failed to flush {} token usage rows: {}", rows.size(), e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private record Key(String username, String endpoint, String model, String operation, String promptVersion) {
+    }
+
+    /**
+     * Mutable running totals; only modified inside {@link ConcurrentHashMap#compute}.
+     */
+    private static final class Totals {
+        private long calls;
+        private long inputTokens;
+        private long cachedInputTokens;
+        private long outputTokens;
+        private long latencyNanos;
+
+        private Totals add(int input, int cached, int output, long latency) {
+            calls++;
+            inputTokens += input;
+            cachedInputTokens += cached;
+            outputTokens += output;
+            latencyNanos += latency;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.skincare.service;
+
+import com.skincare.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link User} that drops the cached principal and account state of an account whenever
+ * its row is created, updated or deleted. Resolved lazily because Hibernate builds its listeners while the
+ * repositories the user service depends on are still being created.
+ */
+@Component
+public class UserAccountListener {
+
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+
+    public UserAccountListener(ObjectProvider<CustomUserDetailsService> userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void accountChanged(User user) {
+        CustomUserDetailsService service = userDetailsService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (user.getUsername() != null) {
+            service.evict(user.getUsername());
+        }
+        if (user.getId() != null) {
+            service.evictAccount(user.getId());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.skincare.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streams a vision request body whose image data URL is base64-encoded on the fly from the source
+ * stream into pooled Netty buffers. Neither the base64 text, the data URL nor the serialized JSON is
+ * ever built as a whole, so heap per upload is a few chunks regardless of image size. The body is
+ * re-readable: every subscription (for example a retry) reopens the source.
+ */
+final class VisionRequestBody {
+
+    // Multiple of 3 so only the final chunk carries base64 padding
+    private static final int RAW_CHUNK_SIZE = 3 * 16 * 1024;
+    private static final String IMAGE_MARKER = "\u0000image-data\u0000";
+    private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final InputStreamSource image;
+    private final long imageSize;
+
+    private VisionRequestBody(byte[] prefix, byte[] suffix, InputStreamSource image, long imageSize) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.image = image;
+        this.imageSize = imageSize;
+    }
+
+    /**
+     * @param requestFactory builds the request map given the value to place in the image_url field
+     */
+    static VisionRequestBody create(ObjectMapper objectMapper, Function<String, Map<String, Object>> requestFactory,
+                                    InputStreamSource image, long imageSize, String contentType) {
+        try {
+            // Serialize once with a marker where the base64 payload goes; Jackson escapes the content type
+            String json = objectMapper.writeValueAsString(
+                    requestFactory.apply("data:" + contentType + ";base64," + IMAGE_MARKER));
+            String escapedMarker = objectMapper.writeValueAsString(IMAGE_MARKER);
+            escapedMarker = escapedMarker.substring(1, escapedMarker.length() - 1);
+            int split = json.indexOf(escapedMarker);
+            return new VisionRequestBody(
+                    json.substring(0, split).getBytes(StandardCharsets.UTF_8),
+                    json.substring(split + escapedMarker.length()).getBytes(StandardCharsets.UTF_8),
+                    image,
+                    imageSize);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize vision request", e);
+        }
+    }
+
+    long contentLength() {
+        return prefix.length + 4 * ((imageSize + 2) / 3) + suffix.length;
+    }
+
+    Flux<DataBuffer> content() {
+        return Flux.concat(
+                        Flux.defer(() -> Flux.just(BUFFER_FACTORY.wrap(prefix))),
+                        Flux.generate(this::open, this::nextChunk, this::close),
+                        Flux.defer(() -> Flux.just(BUFFER_FACTORY.wrap(suffix))))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private Upload open() {
+        try {
+            return new Upload(image.getInputStream(), new byte[RAW_CHUNK_SIZE]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open image for upload", e);
+        }
+    }
+
+    private Upload nextChunk(Upload upload, SynchronousSink<DataBuffer> sink) {
+        try {
+            int read = upload.input().readNBytes(upload.chunk(), 0, RAW_CHUNK_SIZE);
+            if (read == 0) {
+                sink.complete();
+                return upload;
+            }
+            DataBuffer buffer = BUFFER_FACTORY.allocateBuffer(4 * ((read + 2) / 3));
+            try (OutputStream encoder = Base64.getEncoder().wrap(buffer.asOutputStream())) {
+                encoder.write(upload.chunk(), 0, read);
+            } catch (IOException | RuntimeException e) {
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+            sink.next(buffer);
+        } catch (IOException e) {
+            sink.error(new UncheckedIOException("Failed to read image for upload", e));
+        }
+        return upload;
+    }
+
+    private void close(Upload upload) {
+        try {
+            upload.input().close();
+        } catch (IOException ignored) {
+            // Nothing left to release; the body has already been written or abandoned
+        }
+    }
+
+    /**
+     * Per-subscription read state; the raw chunk array is reused for every chunk of one upload.
+     */
+    private record Upload(InputStream input, byte[] chunk) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.skincare.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled Aho-Corasick automaton that finds every occurrence of a fixed set of patterns in a single
+ * pass over the text. Transitions are a dense table over the characters that occur in the patterns,
+ * so scanning is one array lookup per character and allocates nothing. Immutable and thread-safe.
+ */
+public final class AhoCorasickMatcher {
+
+    private final int[] charClass;
+    private final int classes;
+    private final int[] transitions;
+    private final int[] output;
+    private final int[] outputLink;
+    private final int[] patternLengths;
+
+    private AhoCorasickMatcher(int[] charClass, int classes, int[] transitions, int[] output, int[] outputLink,
+                               int[] patternLengths) {
+        this.charClass = charClass;
+        this.classes = classes;
+        this.transitions = transitions;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.patternLengths = patternLengths;
+    }
+
+    /**
+     * Compiles the patterns; a match reports the index of its pattern in this list. When the same
+     * pattern appears more than once only its first index is reported.
+     */
+    public static AhoCorasickMatcher compile(List<String> patterns) {
+        int maxChar = 0;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                maxChar = Math.max(maxChar, pattern.charAt(i));
+            }
+        }
+        // Class 0 is every character that appears in no pattern; it always leads back to the root
+        int[] charClass = new int[maxChar + 1];
+        int classes = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                if (charClass[pattern.charAt(i)] == 0) {
+                    charClass[pattern.charAt(i)] = classes++;
+                }
+            }
+        }
+
+        // Trie
+        List<int[]> rows = new ArrayList<>();
+        rows.add(newRow(classes));
+        List<Integer> outputs = new ArrayList<>();
+        outputs.add(-1);
+        int[] patternLengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            patternLengths[p] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cls = charClass[pattern.charAt(i)];
+                if (rows.get(state)[cls] < 0) {
+                    rows.get(state)[cls] = rows.size();
+                    rows.add(newRow(classes));
+                    outputs.add(-1);
+                }
+                state = rows.get(state)[cls];
+            }
+            if (outputs.get(state) < 0) {
+                outputs.set(state, p);
+            }
+        }
+
+        // Failure links, breadth first, folded into a complete transition table
+        int states = rows.size();
+        int[] transitions = new int[states * classes];
+        int[] output = new int[states];
+        int[] outputLink = new int[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(rows.get(s), 0, transitions, s * classes, classes);
+            output[s] = outputs.get(s);
+        }
+        Arrays.fill(outputLink, -1);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < classes; cls++) {
+            int child = transitions[cls];
+            if (child < 0 || cls == 0) {
+                transitions[cls] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int cls = 0; cls < classes; cls++) {
+                int index = state * classes + cls;
+                int child = transitions[index];
+                int fallback = transitions[fail[state] * classes + cls];
+                if (child < 0) {
+                    transitions[index] = fallback;
+                } else {
+                    fail[child] = fallback;
+                    outputLink[child] = output[fallback] >= 0 ? fallback : outputLink[fallback];
+                    queue.add(child);
+                }
+            }
+        }
+
+        return new AhoCorasickMatcher(charClass, classes, transitions, output, outputLink, patternLengths);
+    }
+
+    private static int[] newRow(int classes) {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Reports every pattern occurrence in {@code text[from, to)} in order of increasing end offset.
+     */
+    public void scan(char[] text, int from, int to, MatchHandler handler) {
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            char c = text[i];
+            int cls = c < charClass.length ? charClass[c] : 0;
+            state = transitions[state * classes + cls];
+
+            int emitting = output[state] >= 0 ? state : outputLink[state];
+            while (emitting > 0) {
+                int pattern = output[emitting];
+                handler.onMatch(i + 1 - patternLengths[pattern], i + 1, pattern);
+                emitting = outputLink[emitting];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * @param start   offset of the first matched character
+         * @param end     offset just past the last matched character
+         * @param pattern index of the matched pattern
+         */
+        void onMatch(int start, int end, int pattern);
+    }
+}
@@ -0,0 +1,41 @@
+package com.skincare.util;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a piece of work must finish. Set once per inbound request and carried into
+ * reactive pipelines through the Reactor context, so every upstream call shares the caller's budget
+ * instead of starting a fresh timeout.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    public static final String REQUEST_ATTRIBUTE = Deadline.class.getName();
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * The deadline of the request bound to the current thread, or one {@code fallback} from now when
+     * there is none (background workers, or a thread the request was not propagated to).
+     */
+    public static Deadline current(Duration fallback) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Deadline deadline) {
+            return deadline;
+        }
+        return after(fallback);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.skincare.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Low-cardinality name of the endpoint being served on the current thread, for metric tags and
+ * usage attribution: the HTTP method and matched route pattern (so path variables do not multiply
+ * the series), or {@value #BACKGROUND} outside of a request.
+ */
+public final class RequestEndpoint {
+
+    public static final String BACKGROUND = "background";
+
+    private RequestEndpoint() {
+    }
+
+    public static String current() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        }
+        return BACKGROUND;
+    }
+}
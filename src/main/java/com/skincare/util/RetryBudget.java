@@ -0,0 +1,48 @@
+package com.skincare.util;
+
+/**
+ * Caps retries to a fraction of overall traffic so that retries cannot multiply load on an upstream
+ * that is already failing. Every request deposits {@code ratio} of a retry token; every retry
+ * withdraws a whole one. A small per-second allowance keeps retries possible at low traffic.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final double maxBalance;
+
+    private double balance;
+    private long currentSecond;
+    private int allowanceUsed;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        // Bounded so a long healthy period cannot bank an unlimited retry storm
+        this.maxBalance = Math.max(10, ratio * 1000);
+    }
+
+    public synchronized void recordRequest() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    /**
+     * Withdraws one retry; false when the budget is exhausted and the caller should fail instead.
+     */
+    public synchronized boolean tryRetry() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        if (second != currentSecond) {
+            currentSecond = second;
+            allowanceUsed = 0;
+        }
+        if (allowanceUsed < minRetriesPerSecond) {
+            allowanceUsed++;
+            return true;
+        }
+        if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package com.skincare.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to drain a burst of blocking tasks through the blocking scheduler in each execution mode, built by
+ * {@link ExecutionConfig} with the default thread cap. The sleep stands in for a JDBC or HTTP wait; with
+ * 0 ms the burst measures scheduling overhead alone. Needs JDK 21. Run {@link #main} from the test
+ * classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingSchedulerBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"0", "5"})
+    public int blockMillis;
+
+    private Scheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        scheduler = new ExecutionConfig().blockingScheduler(virtualThreads, 64, 10000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Benchmark
+    public Long burst() {
+        return Flux.range(0, TASKS)
+                .flatMap(i -> Mono.fromCallable(this::blockingCall).subscribeOn(scheduler), TASKS)
+                .count()
+                .block(Duration.ofMinutes(1));
+    }
+
+    private int blockingCall() throws InterruptedException {
+        if (blockMillis > 0) {
+            Thread.sleep(blockMillis);
+        }
+        return blockMillis;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BlockingSchedulerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,28 @@
+package com.skincare.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisHistoryCursorTest {
+
+    @Test
+    void encodedCursorDecodesToTheSamePosition() {
+        AnalysisHistoryCursor cursor = new AnalysisHistoryCursor(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 600_000_000), 42L);
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(AnalysisHistoryCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void foreignTokensAreRejected() {
+        assertThatThrownBy(() -> AnalysisHistoryCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnalysisHistoryCursor.decode("bm8tc2VwYXJhdG9y")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnalysisHistoryCursor.decode("MjAyNi0wMS0wMlQwMzowNHxhYmM")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,172 @@
+package com.skincare.repository;
+
+import com.skincare.dto.IngredientAnalysisResponseDto;
+import com.skincare.model.IngredientAnalysis;
+import com.skincare.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One history page read as entities mapped to DTOs (the path before the JPQL projections) against the
+ * full and summary projections, on an in-memory H2 database in PostgreSQL mode. H2 keeps TEXT columns
+ * inline, so this measures the ORM side (hydration, persistence context, lazy user) rather than
+ * PostgreSQL detoasting. The runner adds the GC profiler ({@code gc.alloc.rate.norm} is bytes allocated per
+ * page), and each trial prints the JDBC statements Hibernate prepared per page, which is where a lazy
+ * association turning into one query per row would show. Run {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisHistoryQueryBenchmark {
+
+    private static final int ANALYSES = 500;
+    // One row past the page, as AnalysisHistoryService reads it
+    private static final int PAGE_ROWS = 21;
+
+    private ConfigurableApplicationContext context;
+    private IngredientAnalysisRepository analysisRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private Long userId;
+    private Statistics statistics;
+    private long invocations;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaOnly.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:history;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.main.banner-mode=off");
+        analysisRepository = context.getBean(IngredientAnalysisRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .username("alice")
+                .email("alice@example.com")
+                .password("hash")
+                .build());
+        userId = user.getId();
+        String ingredients = "water, glycerin, niacinamide, butylene glycol, 1,2-hexanediol, fragrance, ".repeat(5);
+        String safetyAnalysis = "{\"name\": \"Glycerin\", \"classification\": \"Good\", \"reason\": \"Humectant\"}, ".repeat(80);
+        List<IngredientAnalysis> analyses = new ArrayList<>();
+        for (int i = 0; i < ANALYSES; i++) {
+            analyses.add(IngredientAnalysis.builder()
+                    .user(user)
+                    .productName("Product " + i)
+                    .identifiedIngredients(ingredients)
+                    .safetyAnalysis(safetyAnalysis)
+                    .safetyScore(7.0)
+                    .build());
+        }
+        analysisRepository.saveAll(analyses);
+
+        // Each benchmark runs in its own fork, so after the inserts are cleared the counter is that benchmark's
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (invocations > 0) {
+            System.out.printf("%nJDBC statements per invocation: %.2f (%d over %d invocations)%n",
+                    (double) statistics.getPrepareStatementCount() / invocations,
+                    statistics.getPrepareStatementCount(), invocations);
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public List<IngredientAnalysisResponseDto> entities() {
+        invocations++;
+        return readOnlyTransaction.execute(status -> entityManager.createQuery("""
+                        SELECT a FROM IngredientAnalysis a
+                        WHERE a.user.id = :userId
+                        ORDER BY a.analysisDate DESC, a.id DESC
+                        """, IngredientAnalysis.class)
+                .setParameter("userId", userId)
+                .setMaxResults(PAGE_ROWS)
+                .getResultStream()
+                .map(IngredientAnalysisResponseDto::from)
+                .toList());
+    }
+
+    @Benchmark
+    public List<IngredientAnalysisResponseDto> projection() {
+        invocations++;
+        return readOnlyTransaction.execute(status -> analysisRepository.findHistory(userId, Limit.of(PAGE_ROWS)));
+    }
+
+    @Benchmark
+    public List<IngredientAnalysisResponseDto> summaryProjection() {
+        invocations++;
+        return readOnlyTransaction.execute(status -> analysisRepository.findHistorySummary(userId, Limit.of(PAGE_ROWS)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnalysisHistoryQueryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Just the datasource, JPA and the two repositories used here, not the application.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = IngredientAnalysis.class)
+    @EnableJpaRepositories(basePackageClasses = IngredientAnalysisRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                    classes = {IngredientAnalysisRepository.class, UserRepository.class}))
+    static class JpaOnly {
+    }
+}
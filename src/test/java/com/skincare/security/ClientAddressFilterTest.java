@@ -0,0 +1,40 @@
+package com.skincare.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressFilterTest {
+
+    private static final String PROXY = "10.0.0.2";
+
+    @Test
+    void clientIsTheHopAppendedByTheTrustedProxy() {
+        assertThat(resolve(List.of("203.0.113.7"), 1)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void entriesPrependedByTheClientAreIgnored() {
+        assertThat(resolve(List.of("1.1.1.1, 2.2.2.2, 203.0.113.7"), 1)).isEqualTo("203.0.113.7");
+        assertThat(resolve(List.of("1.1.1.1", "203.0.113.7"), 1)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void eachTrustedProxyPeelsOffOneHop() {
+        assertThat(resolve(List.of("1.1.1.1, 203.0.113.7, 10.0.0.9"), 2)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void socketPeerIsUsedWithoutTrustedProxiesOrAForwardedChain() {
+        assertThat(resolve(List.of("1.1.1.1"), 0)).isEqualTo(PROXY);
+        assertThat(resolve(List.of(), 1)).isEqualTo(PROXY);
+        assertThat(resolve(List.of("203.0.113.7"), 3)).isEqualTo(PROXY);
+    }
+
+    private static String resolve(List<String> forwardedFor, int trustedProxies) {
+        return ClientAddressFilter.resolve(Collections.enumeration(forwardedFor).asIterator(), PROXY, trustedProxies);
+    }
+}
@@ -0,0 +1,121 @@
+package com.skincare.security;
+
+import com.skincare.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void bucketAllowsBurstThenRefillsAtPlanRate() {
+        RateLimiter.Plan plan = RateLimiter.Plan.parse("3/3s");
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(plan.capacity(), 0);
+
+        assertThat(bucket.tryConsume(plan, 1, 0)).isZero();
+        assertThat(bucket.tryConsume(plan, 1, 0)).isZero();
+        assertThat(bucket.tryConsume(plan, 1, 0)).isZero();
+        assertThat(bucket.tryConsume(plan, 1, 0)).isEqualTo(SECOND);
+
+        assertThat(bucket.tryConsume(plan, 1, SECOND)).isZero();
+        assertThat(bucket.tryConsume(plan, 1, SECOND)).isPositive();
+    }
+
+    @Test
+    void bucketChargesSeveralPermitsAtOnce() {
+        RateLimiter.Plan plan = RateLimiter.Plan.parse("10/10s");
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(plan.capacity(), 0);
+
+        assertThat(bucket.tryConsume(plan, 8, 0)).isZero();
+        assertThat(bucket.tryConsume(plan, 4, 0)).isEqualTo(2 * SECOND);
+        // A rejected request takes nothing
+        assertThat(bucket.tryConsume(plan, 2, 0)).isZero();
+    }
+
+    @Test
+    void bucketNeverRefillsPastCapacity() {
+        RateLimiter.Plan plan = RateLimiter.Plan.parse("2/1s");
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(plan.capacity(), 0);
+
+        long later = 60 * SECOND;
+        assertThat(bucket.tryConsume(plan, 2, later)).isZero();
+        assertThat(bucket.tryConsume(plan, 1, later)).isPositive();
+    }
+
+    @Test
+    void planRejectsMalformedSpecs() {
+        assertThat(RateLimiter.Plan.parse("30/1m")).isEqualTo(new RateLimiter.Plan(30, Duration.ofMinutes(1)));
+        assertThatThrownBy(() -> RateLimiter.Plan.parse("30")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimiter.Plan.parse("0/1m")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void batchesHaveTheirOwnBudget() {
+        RateLimiter limiter = limiter();
+        AuthenticatedUser user = new AuthenticatedUser(1L, "alice", User.Role.USER);
+
+        limiter.consume(RateLimiter.Scope.ANALYZE_BATCH, user, 6);
+        limiter.consume(RateLimiter.Scope.ANALYZE, user, 5);
+        assertThatThrownBy(() -> limiter.consume(RateLimiter.Scope.ANALYZE_BATCH, user, 3))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void batchLargerThanCapacityIsAdmittedByAFullBucket() {
+        RateLimiter limiter = limiter();
+        AuthenticatedUser user = new AuthenticatedUser(1L, "alice", User.Role.USER);
+
+        limiter.consume(RateLimiter.Scope.ANALYZE_BATCH, user, 500);
+        assertThatThrownBy(() -> limiter.consume(RateLimiter.Scope.ANALYZE_BATCH, user, 1))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void failedLoginsFromOneClientDoNotLockOutAnother() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) {
+            limiter.consumeLogin("Victim", "203.0.113.7");
+        }
+        assertThatThrownBy(() -> limiter.consumeLogin("victim", "203.0.113.7"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("scope").isEqualTo(RateLimiter.Scope.LOGIN);
+
+        limiter.consumeLogin("victim", "198.51.100.1");
+    }
+
+    @Test
+    void loginsAreLimitedPerClientAcrossUsernames() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 5; i++) {
+            limiter.consumeLogin("user" + i, "203.0.113.7");
+        }
+        assertThatThrownBy(() -> limiter.consumeLogin("someone-else", "203.0.113.7"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("scope").isEqualTo(RateLimiter.Scope.LOGIN_SOURCE);
+    }
+
+    @Test
+    void guessesSpreadOverManyClientsHitTheAccountCap() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 4; i++) {
+            limiter.consumeLogin("victim", "203.0.113." + i);
+        }
+        assertThatThrownBy(() -> limiter.consumeLogin("victim", "198.51.100.1"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("scope").isEqualTo(RateLimiter.Scope.LOGIN_ACCOUNT);
+
+        limiter.consumeLogin("someone-else", "198.51.100.2");
+    }
+
+    private static RateLimiter limiter() {
+        return new RateLimiter(true, "5/1h", "50/1h", "2/1h", "20/1h", "8/1h", "80/1h", "3/1h", "5/1h", "4/1h", 1000,
+                new SimpleMeterRegistry());
+    }
+}
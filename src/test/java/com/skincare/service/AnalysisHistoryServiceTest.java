@@ -0,0 +1,45 @@
+package com.skincare.service;
+
+import com.skincare.dto.AnalysisHistoryCursor;
+import com.skincare.dto.AnalysisHistoryPage;
+import com.skincare.dto.IngredientAnalysisResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisHistoryServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 16, 12, 0);
+
+    @Test
+    void fullPageWithLookAheadRowHasCursorAtLastKeptRow() {
+        AnalysisHistoryPage page = AnalysisHistoryService.toPage(rows(4), 3, "alice");
+
+        assertThat(page.items()).extracting(IngredientAnalysisResponseDto::getId).containsExactly(4L, 3L, 2L);
+        assertThat(page.items()).allSatisfy(item -> assertThat(item.getUsername()).isEqualTo("alice"));
+        assertThat(AnalysisHistoryCursor.decode(page.nextCursor()))
+                .isEqualTo(new AnalysisHistoryCursor(NOW.minusMinutes(2), 2L));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        assertThat(AnalysisHistoryService.toPage(rows(3), 3, "alice").nextCursor()).isNull();
+        assertThat(AnalysisHistoryService.toPage(rows(1), 3, "alice").items()).hasSize(1);
+        assertThat(AnalysisHistoryService.toPage(List.of(), 3, "alice").items()).isEmpty();
+    }
+
+    /**
+     * Rows as the history queries return them: newest first, ids descending.
+     */
+    private static List<IngredientAnalysisResponseDto> rows(int count) {
+        List<IngredientAnalysisResponseDto> rows = new ArrayList<>();
+        for (long id = count; id >= 1; id--) {
+            rows.add(new IngredientAnalysisResponseDto(id, "Product " + id, 7.0, NOW.minusMinutes(count - id), "water"));
+        }
+        return rows;
+    }
+}
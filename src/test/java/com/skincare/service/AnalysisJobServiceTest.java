@@ -0,0 +1,31 @@
+package com.skincare.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisJobServiceTest {
+
+    private static final Duration BASE = Duration.ofSeconds(5);
+    private static final Duration MAX = Duration.ofMinutes(5);
+
+    @Test
+    void backoffKeepsAtLeastHalfTheDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(AnalysisJobService.backoff(BASE, MAX, Duration.ofSeconds(40)))
+                    .isBetween(Duration.ofSeconds(20), Duration.ofSeconds(40));
+        }
+    }
+
+    @Test
+    void backoffIsClampedToTheBaseAndTheCap() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(AnalysisJobService.backoff(BASE, MAX, Duration.ZERO))
+                    .isBetween(Duration.ofMillis(2500), BASE);
+            assertThat(AnalysisJobService.backoff(BASE, MAX, Duration.ofHours(3)))
+                    .isBetween(Duration.ofSeconds(150), MAX);
+        }
+    }
+}
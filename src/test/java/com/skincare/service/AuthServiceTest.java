@@ -0,0 +1,47 @@
+package com.skincare.service;
+
+import com.skincare.model.User;
+import com.skincare.repository.UserRepository;
+import com.skincare.security.AuthenticatedUser;
+import com.skincare.security.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+    @Test
+    void revokingTokensRaisesTheVersionAndRejectsOlderTokensAtOnce() {
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = User.builder()
+                .id(1L)
+                .username("alice")
+                .email("alice@example.com")
+                .password("hash")
+                .role(User.Role.USER)
+                .build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), 100, Duration.ofMinutes(1));
+        AuthService authService = new AuthService(userRepository, mock(PasswordEncoder.class),
+                mock(JwtService.class), mock(AuthenticationManager.class), userDetailsService);
+        AuthenticatedUser principal = AuthenticatedUser.of(user);
+        assertThat(userDetailsService.isCurrent(principal, 0)).isTrue();
+
+        authService.revokeTokens(1L);
+
+        verify(userRepository).save(user);
+        assertThat(user.currentTokenVersion()).isEqualTo(1);
+        assertThat(userDetailsService.isCurrent(principal, 0)).isFalse();
+        assertThat(userDetailsService.isCurrent(principal, 1)).isTrue();
+    }
+}
@@ -0,0 +1,93 @@
+package com.skincare.service;
+
+import com.skincare.dto.IngredientAnalysisResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatGPTServiceTest {
+
+    private static final UnaryOperator<String> CANONICALIZE = name -> name.trim().toLowerCase(Locale.ROOT);
+
+    @Test
+    void answersAreKeyedByCanonicalName() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = ChatGPTService.indexByName(
+                List.of("glycerin", "niacinamide"),
+                List.of(detail("Niacinamide", "Good"), detail("Glycerin", "Neutral")),
+                CANONICALIZE);
+
+        assertThat(byName.get("glycerin").getClassification()).isEqualTo("Neutral");
+        assertThat(byName.get("niacinamide").getClassification()).isEqualTo("Good");
+    }
+
+    @Test
+    void rewrittenNameFallsBackToItsPositionWhenTheAnswerLinesUp() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = ChatGPTService.indexByName(
+                List.of("water", "glycerin", "niacinamide"),
+                List.of(detail("Aqua (Water)", "Neutral"), detail("Glycerin", "Good"), detail("Niacinamide", "Good")),
+                CANONICALIZE);
+
+        assertThat(byName.get("water").getName()).isEqualTo("Aqua (Water)");
+    }
+
+    @Test
+    void reorderedAnswerDoesNotFallBackByPosition() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = ChatGPTService.indexByName(
+                List.of("water", "glycerin", "fragrance"),
+                List.of(detail("Glycerin", "Good"), detail("Parfum", "Bad"), detail("Aqua (Water)", "Neutral")),
+                CANONICALIZE);
+
+        assertThat(byName).doesNotContainKeys("water", "fragrance");
+        assertThat(byName.get("glycerin").getClassification()).isEqualTo("Good");
+    }
+
+    @Test
+    void answerAlreadyMatchedByNameIsNotReusedByPosition() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = ChatGPTService.indexByName(
+                List.of("water", "glycerin"),
+                List.of(detail("Glycerin", "Good"), detail("Glycerin", "Good")),
+                CANONICALIZE);
+
+        assertThat(byName).doesNotContainKey("water");
+    }
+
+    @Test
+    void differentCountsNeverFallBackByPosition() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> byName = ChatGPTService.indexByName(
+                List.of("water", "glycerin"),
+                List.of(detail("Aqua (Water)", "Neutral")),
+                CANONICALIZE);
+
+        assertThat(byName).doesNotContainKeys("water", "glycerin");
+    }
+
+    @Test
+    void answersKeepOnlyRequestedIdsIncludingPositionalMatches() {
+        Map<String, IngredientAnalysisResult.IngredientDetail> answers = ChatGPTService.answersFor(
+                List.of("water", "glycerin"),
+                List.of(detail("Aqua (Water)", "Neutral"), detail("Glycerin", "Good"), detail("Retinol", "Bad")),
+                CANONICALIZE);
+
+        assertThat(answers).containsOnlyKeys("glycerin");
+
+        answers = ChatGPTService.answersFor(
+                List.of("water", "glycerin"),
+                List.of(detail("Aqua (Water)", "Neutral"), detail("Glycerin", "Good")),
+                CANONICALIZE);
+
+        assertThat(answers).containsOnlyKeys("water", "glycerin");
+    }
+
+    private static IngredientAnalysisResult.IngredientDetail detail(String name, String classification) {
+        IngredientAnalysisResult.IngredientDetail detail = new IngredientAnalysisResult.IngredientDetail();
+        detail.setName(name);
+        detail.setClassification(classification);
+        detail.setReason("test");
+        return detail;
+    }
+}
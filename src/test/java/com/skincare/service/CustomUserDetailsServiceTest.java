@@ -0,0 +1,89 @@
+package com.skincare.service;
+
+import com.skincare.model.User;
+import com.skincare.repository.UserRepository;
+import com.skincare.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    private final AuthenticatedUser alice = new AuthenticatedUser(1L, "alice", User.Role.USER);
+
+    private UserRepository userRepository;
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        service = new CustomUserDetailsService(userRepository, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void claimsMatchingTheAccountAreCurrentAndCached() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(User.Role.USER, 0)));
+
+        assertThat(service.isCurrent(alice, 0)).isTrue();
+        assertThat(service.isCurrent(alice, 0)).isTrue();
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void roleChangeRevokesOnceTheAccountIsEvicted() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(User.Role.USER, 0)));
+        assertThat(service.isCurrent(alice, 0)).isTrue();
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(User.Role.ADMIN, 0)));
+        service.evictAccount(1L);
+
+        assertThat(service.isCurrent(alice, 0)).isFalse();
+    }
+
+    @Test
+    void raisedTokenVersionRevokesOlderTokens() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(User.Role.USER, 2)));
+
+        assertThat(service.isCurrent(alice, 1)).isFalse();
+        assertThat(service.isCurrent(alice, 2)).isTrue();
+    }
+
+    @Test
+    void deletedAccountIsRevokedAndRemembered() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThat(service.isCurrent(alice, 0)).isFalse();
+        assertThat(service.isCurrent(alice, 0)).isFalse();
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void rowsWithoutATokenVersionCountAsVersionZero() {
+        User legacy = user(User.Role.USER, 0);
+        legacy.setTokenVersion(null);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(legacy));
+
+        assertThat(service.isCurrent(alice, 0)).isTrue();
+    }
+
+    private static User user(User.Role role, int tokenVersion) {
+        return User.builder()
+                .id(1L)
+                .username("alice")
+                .email("alice@example.com")
+                .password("hash")
+                .role(role)
+                .tokenVersion(tokenVersion)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.skincare.service;
+
+import com.skincare.dto.IngredientAnalysisResult;
+import com.skincare.dto.IngredientAnalysisResult.IngredientDetail;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientScoringTest {
+
+    @Test
+    void noIngredientsRateNeutral() {
+        assertThat(IngredientScoring.rate(null)).isEqualTo(5);
+        assertThat(IngredientScoring.rate(List.of())).isEqualTo(5);
+    }
+
+    @Test
+    void classificationsAreCaseInsensitiveAndUnknownOnesCountAsNeutral() {
+        assertThat(IngredientScoring.rate(details("Good", "good", "GOOD"))).isEqualTo(9);
+        assertThat(IngredientScoring.rate(details("Neutral", "Uncertain"))).isEqualTo(5);
+    }
+
+    @Test
+    void ratingIsClampedToTheScale() {
+        assertThat(IngredientScoring.rate(details("Bad"))).isEqualTo(1);
+    }
+
+    @Test
+    void badIngredientCostsMoreNearTheTopOfTheList() {
+        int badFirst = IngredientScoring.rate(details("Bad", "Good", "Good", "Good", "Good", "Good", "Good"));
+        int badLast = IngredientScoring.rate(details("Good", "Good", "Good", "Good", "Good", "Good", "Bad"));
+
+        assertThat(badFirst).isEqualTo(6);
+        assertThat(badLast).isEqualTo(8);
+    }
+
+    @Test
+    void severeBadIngredientCostsItsSeverityWhereverItAppears() {
+        List<IngredientDetail> details = details("Good", "Good", "Good", "Good", "Good", "Good", "Good", "Good",
+                "Good", "Bad");
+
+        assertThat(IngredientScoring.rate(details)).isEqualTo(8);
+        assertThat(IngredientScoring.rate(details,
+                detail -> "Bad".equals(detail.getClassification()) ? 3.0 : 1.0)).isEqualTo(5);
+    }
+
+    @Test
+    void summaryCountsClassesAndNamesHarmfulIngredients() {
+        IngredientAnalysisResult result = IngredientScoring.summarize(details("Good", "Bad", "Neutral", "Good"));
+
+        assertThat(result.getIngredients()).hasSize(4);
+        assertThat(result.getOverall_rating()).isEqualTo(5);
+        assertThat(result.getSummary())
+                .isEqualTo("2 beneficial, 1 potentially harmful and 1 neutral ingredients. Watch out for: I1.");
+    }
+
+    @Test
+    void summaryNamesAtMostFiveHarmfulIngredients() {
+        String summary = IngredientScoring.summarize(details("Bad", "Bad", "Bad", "Bad", "Bad", "Bad")).getSummary();
+
+        assertThat(summary).endsWith("Watch out for: I0, I1, I2, I3, I4.");
+        assertThat(IngredientScoring.summarize(details("Good")).getSummary()).doesNotContain("Watch out");
+    }
+
+    private static List<IngredientDetail> details(String... classifications) {
+        List<IngredientDetail> details = new ArrayList<>();
+        for (int i = 0; i < classifications.length; i++) {
+            IngredientDetail detail = new IngredientDetail();
+            detail.setName("I" + i);
+            detail.setClassification(classifications[i]);
+            details.add(detail);
+        }
+        return details;
+    }
+}
@@ -0,0 +1,70 @@
+package com.skincare.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientStreamParserTest {
+
+    private static final String ANSWER = "{\"ingredients\": ["
+            + "{\"name\": \"Water\", \"classification\": \"Neutral\", \"reason\": \"Solvent\"}, "
+            + "{\"name\": \"Niacinamide\", \"classification\": \"Good\", \"reason\": \"Barrier {support}\"}"
+            + "], \"overall_rating\": 8, \"summary\": \"Fine\"}";
+
+    @Test
+    void emitsEachObjectOnceItsClosingBraceArrives() {
+        IngredientStreamParser parser = new IngredientStreamParser();
+
+        assertThat(parser.feed("{\"ingredients\": [{\"name\": \"Water\", ")).isEmpty();
+        assertThat(parser.feed("\"classification\": \"Neutral\"}, {\"name\""))
+                .containsExactly("{\"name\": \"Water\", \"classification\": \"Neutral\"}");
+        assertThat(parser.feed(": \"Glycerin\"}]")).containsExactly("{\"name\": \"Glycerin\"}");
+    }
+
+    @Test
+    void resultDoesNotDependOnChunkBoundaries() {
+        List<String> whole = new IngredientStreamParser().feed(ANSWER);
+
+        for (int size = 1; size <= 7; size++) {
+            IngredientStreamParser parser = new IngredientStreamParser();
+            List<String> chunked = new ArrayList<>();
+            for (int i = 0; i < ANSWER.length(); i += size) {
+                chunked.addAll(parser.feed(ANSWER.substring(i, Math.min(ANSWER.length(), i + size))));
+            }
+            assertThat(chunked).as("chunk size %d", size).isEqualTo(whole);
+            assertThat(parser.text()).isEqualTo(ANSWER);
+        }
+        assertThat(whole).hasSize(2);
+    }
+
+    @Test
+    void bracesAndQuotesInsideStringsAreIgnored() {
+        IngredientStreamParser parser = new IngredientStreamParser();
+
+        List<String> objects = parser.feed("{\"ingredients\": [{\"name\": \"A}\", \"reason\": \"say \\\"{hi}\\\" ]\"}]}");
+
+        assertThat(objects).containsExactly("{\"name\": \"A}\", \"reason\": \"say \\\"{hi}\\\" ]\"}");
+    }
+
+    @Test
+    void nestedObjectsStayPartOfTheirIngredient() {
+        IngredientStreamParser parser = new IngredientStreamParser();
+
+        List<String> objects = parser.feed("{\"ingredients\": [{\"name\": \"A\", \"meta\": {\"cas\": \"1\"}}]}");
+
+        assertThat(objects).containsExactly("{\"name\": \"A\", \"meta\": {\"cas\": \"1\"}}");
+    }
+
+    @Test
+    void ignoresObjectsBeforeAndAfterTheIngredientsArray() {
+        IngredientStreamParser parser = new IngredientStreamParser();
+
+        assertThat(parser.feed("{\"meta\": {\"x\": 1}, \"ingred")).isEmpty();
+        assertThat(parser.feed("ients\": [{\"name\": \"A\"}], \"extra\": {\"name\": \"B\"}}"))
+                .containsExactly("{\"name\": \"A\"}");
+        assertThat(parser.feed("{\"name\": \"C\"}")).isEmpty();
+    }
+}
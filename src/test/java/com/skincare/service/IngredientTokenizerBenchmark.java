@@ -0,0 +1,82 @@
+package com.skincare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Label tokenizing throughput against the comma split it replaced, on labels built from real INCI
+ * names with the forms the tokenizer understands (bracket alternates, slash synonyms, locants,
+ * colorant lists). Run {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngredientTokenizerBenchmark {
+
+    private static final String[] SEGMENTS = {
+            "Aqua (Water)", "Glycerin", "Niacinamide", "Butylene Glycol", "1,2-Hexanediol",
+            "Parfum/Fragrance", "Sodium Hyaluronate", "Tocopherol (Vitamin E)", "Cetearyl Alcohol",
+            "Behenyl Alcohol", "Phenoxyethanol", "Caprylyl Glycol", "Dimethicone", "Panthenol",
+            "Sodium Benzoate", "Citric Acid", "Xanthan Gum", "Allantoin", "Ethylhexylglycerin",
+            "2-Bromo-2-Nitropropane-1,3-Diol", "Disodium EDTA", "Carbomer", "Squalane", "Retinol",
+            "May Contain [+/- CI 77491, CI 77492, CI 77499]"
+    };
+
+    @Param({"300", "3300"})
+    public int labelLength;
+
+    private IngredientTokenizer tokenizer;
+    private String label;
+
+    @Setup
+    public void setUp() {
+        tokenizer = new IngredientTokenizer(
+                new IngredientDictionary(new ObjectMapper(), new ClassPathResource("ingredients/inci-dictionary.json")));
+        StringBuilder builder = new StringBuilder("Ingredients: ");
+        for (int i = 0; builder.length() < labelLength; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(SEGMENTS[i % SEGMENTS.length]);
+        }
+        label = builder.toString();
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return tokenizer.tokenize(label);
+    }
+
+    @Benchmark
+    public List<String> commaSplit() {
+        return Arrays.stream(label.split(","))
+                .map(s -> s.trim().toLowerCase())
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IngredientTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.skincare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientTokenizerTest {
+
+    private static IngredientTokenizer tokenizer;
+
+    @BeforeAll
+    static void compile() {
+        tokenizer = new IngredientTokenizer(
+                new IngredientDictionary(new ObjectMapper(), new ClassPathResource("ingredients/inci-dictionary.json")));
+    }
+
+    @Test
+    void locantCommasDoNotSplitNames() {
+        assertThat(tokenizer.tokenize("Aqua, 2-Bromo-2-Nitropropane-1,3-Diol, 1,2-Hexanediol, Glycerin"))
+                .containsExactly("water", "bronopol", "1,2-hexanediol", "glycerin");
+        assertThat(tokenizer.tokenize("Phenoxyethanol, 1,3-Butylene Glycol, Caprylyl Glycol"))
+                .containsExactly("phenoxyethanol", "1,3-butylene glycol", "caprylyl glycol");
+    }
+
+    @Test
+    void parenthesizedAlternatesResolveToOneName() {
+        assertThat(tokenizer.tokenize("Aqua (Water), Glycerin")).containsExactly("water", "glycerin");
+        assertThat(tokenizer.tokenize("Eau (aqua)")).containsExactly("water");
+        assertThat(tokenizer.tokenize("Tocopherol (Vitamin E), Sodium Hyaluronate"))
+                .containsExactly("tocopherol", "sodium hyaluronate");
+    }
+
+    @Test
+    void slashSynonymsResolveToOneName() {
+        assertThat(tokenizer.tokenize("Parfum/Fragrance, Glycerine")).containsExactly("fragrance", "glycerin");
+        assertThat(tokenizer.tokenize("Aqua / Water / Eau")).containsExactly("water");
+    }
+
+    @Test
+    void mayContainListsAreSplitIntoTheirIngredients() {
+        assertThat(tokenizer.tokenize("Water, May Contain [+/- CI 77491, CI 77492, Mica]"))
+                .containsExactly("water", "ci 77491", "ci 77492", "mica");
+    }
+
+    @Test
+    void headerSeparatorsAndDuplicatesAreNormalized() {
+        assertThat(tokenizer.tokenize("Ingredients: Glycerin; AQUA \u2022 glycerin")).containsExactly("glycerin", "water");
+    }
+
+    @Test
+    void partialDictionaryMatchesAreNotMistakenForTheShorterName() {
+        assertThat(tokenizer.tokenize("Glycerin, Behenyl Alcohol, Alcohol Denat."))
+                .containsExactly("glycerin", "behenyl alcohol", "alcohol denat.");
+    }
+
+    @Test
+    void blankInputHasNoTokens() {
+        assertThat(tokenizer.tokenize("")).isEmpty();
+        assertThat(tokenizer.tokenize(null)).isEmpty();
+        assertThat(tokenizer.canonicalize("  ")).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package com.skincare.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAIConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void callsBeyondTheLimitQueueAndRunWhenASlotFrees() {
+        OpenAIConcurrencyLimiter limiter = limiter(1, 1, 1, 1, Duration.ofSeconds(5));
+        Disposable held = limiter.withPermit(Mono.never()).subscribe();
+        AtomicReference<String> queued = new AtomicReference<>();
+
+        limiter.withPermit(Mono.just("queued")).subscribe(queued::set);
+        assertThat(queued).hasValue(null);
+        assertThat(gauge("chatgpt.calls.inflight")).isEqualTo(1);
+        assertThat(gauge("chatgpt.calls.waiting")).isEqualTo(1);
+
+        held.dispose();
+        assertThat(queued).hasValue("queued");
+        assertThat(gauge("chatgpt.calls.inflight")).isZero();
+        assertThat(gauge("chatgpt.calls.waiting")).isZero();
+    }
+
+    @Test
+    void callsBeyondTheQueueAreShedImmediately() {
+        OpenAIConcurrencyLimiter limiter = limiter(1, 1, 1, 1, Duration.ofSeconds(5));
+        limiter.withPermit(Mono.never()).subscribe();
+        limiter.withPermit(Mono.never()).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        limiter.withPermit(Mono.just("shed")).subscribe(value -> { }, error::set);
+
+        assertThat(error.get()).isInstanceOf(OpenAIOverloadedException.class);
+        assertThat(((OpenAIOverloadedException) error.get()).getRetryAfter()).isPositive();
+        assertThatThrownBy(limiter::rejectIfSaturated).isInstanceOf(OpenAIOverloadedException.class);
+        assertThat(registry.get("chatgpt.calls.rejected").tag("reason", "queue_full").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void queuedCallerGivesUpAfterTheMaximumWait() {
+        OpenAIConcurrencyLimiter limiter = limiter(1, 1, 1, 4, Duration.ofMillis(50));
+        limiter.withPermit(Mono.never()).subscribe();
+
+        assertThatThrownBy(() -> limiter.withPermit(Mono.just("late")).block(Duration.ofSeconds(5)))
+                .isInstanceOf(OpenAIOverloadedException.class);
+        assertThat(gauge("chatgpt.calls.waiting")).isZero();
+        assertThat(registry.get("chatgpt.calls.rejected").tag("reason", "queue_timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiterDoesNotTakeTheSlot() {
+        OpenAIConcurrencyLimiter limiter = limiter(1, 1, 1, 4, Duration.ofSeconds(5));
+        Disposable held = limiter.withPermit(Mono.never()).subscribe();
+        Disposable waiting = limiter.withPermit(Mono.never()).subscribe();
+
+        waiting.dispose();
+        assertThat(gauge("chatgpt.calls.waiting")).isZero();
+        held.dispose();
+
+        assertThat(gauge("chatgpt.calls.inflight")).isZero();
+        assertThat(limiter.withPermit(Mono.just("next")).block(Duration.ofSeconds(5))).isEqualTo("next");
+    }
+
+    @Test
+    void timeoutsAndRateLimitsShrinkTheLimitDownToTheMinimum() {
+        OpenAIConcurrencyLimiter limiter = limiter(10, 4, 32, 8, Duration.ofSeconds(5));
+
+        fail(limiter, new TimeoutException());
+        assertThat(gauge("chatgpt.calls.limit")).isEqualTo(9);
+        fail(limiter, WebClientResponseException.create(429, "Too Many Requests", null, null, null));
+        assertThat(gauge("chatgpt.calls.limit")).isEqualTo(8);
+
+        for (int i = 0; i < 20; i++) {
+            fail(limiter, new TimeoutException());
+        }
+        assertThat(gauge("chatgpt.calls.limit")).isEqualTo(4);
+    }
+
+    @Test
+    void otherFailuresLeaveTheLimitAlone() {
+        OpenAIConcurrencyLimiter limiter = limiter(10, 4, 32, 8, Duration.ofSeconds(5));
+
+        fail(limiter, WebClientResponseException.create(500, "Internal Server Error", null, null, null));
+        fail(limiter, new IllegalStateException("bad answer"));
+
+        assertThat(gauge("chatgpt.calls.limit")).isEqualTo(10);
+    }
+
+    @Test
+    void lightLoadDoesNotMoveTheLimit() {
+        OpenAIConcurrencyLimiter limiter = limiter(16, 4, 32, 8, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 50; i++) {
+            limiter.withPermit(Mono.just(i)).block(Duration.ofSeconds(5));
+        }
+
+        assertThat(gauge("chatgpt.calls.limit")).isEqualTo(16);
+    }
+
+    @Test
+    void steadyLatencyAtFullConcurrencyRaisesTheLimit() {
+        OpenAIConcurrencyLimiter limiter = limiter(4, 4, 32, 8, Duration.ofSeconds(5));
+
+        for (int round = 0; round < 10; round++) {
+            int concurrency = (int) gauge("chatgpt.calls.limit");
+            Flux.range(0, concurrency)
+                    .flatMap(i -> limiter.withPermit(Mono.delay(Duration.ofMillis(20))), concurrency)
+                    .blockLast(Duration.ofSeconds(5));
+        }
+
+        assertThat(gauge("chatgpt.calls.limit")).isGreaterThan(4).isLessThanOrEqualTo(32);
+    }
+
+    private OpenAIConcurrencyLimiter limiter(int initial, int min, int max, int queue, Duration maxWait) {
+        return new OpenAIConcurrencyLimiter(initial, min, max, queue, maxWait, registry);
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static void fail(OpenAIConcurrencyLimiter limiter, Throwable error) {
+        limiter.withPermit(Mono.error(error)).onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(5));
+    }
+}
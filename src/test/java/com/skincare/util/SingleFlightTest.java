@@ -0,0 +1,123 @@
+package com.skincare.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersForOneKeyShareTheLeadersCall() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("k", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = singleFlight.execute("k", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+
+        upstream.complete("v");
+        assertThat(first.join()).isEqualTo("v");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void differentKeysDoNotCoalesce() {
+        CompletableFuture<String> a = singleFlight.execute("a", CompletableFuture::new);
+        CompletableFuture<String> b = singleFlight.execute("b", CompletableFuture::new);
+
+        assertThat(a).isNotSameAs(b);
+        assertThat(singleFlight.inFlightCount()).isEqualTo(2);
+    }
+
+    @Test
+    void nothingIsRetainedOnceTheCallCompletes() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("k", () -> CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+        String again = singleFlight.execute("k", () ->
+                CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+
+        assertThat(again).isEqualTo("v2");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndClearsTheKey() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("k", () -> upstream);
+        CompletableFuture<String> second = singleFlight.execute("k", CompletableFuture::new);
+
+        upstream.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void supplierThrowingFailsTheCallWithoutLeakingTheKey() {
+        CompletableFuture<String> failed = singleFlight.execute("k", () -> {
+            throw new IllegalArgumentException("bad request");
+        });
+
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+        assertThat(singleFlight.execute("k", () -> CompletableFuture.completedFuture("v")).join())
+                .isEqualTo("v");
+    }
+
+    @Test
+    void racingCallersStartOneCall() throws Exception {
+        int callers = 16;
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<CompletableFuture<String>>> joined = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                joined.add(executor.submit(() -> {
+                    start.await();
+                    return singleFlight.execute("k", () -> {
+                        calls.incrementAndGet();
+                        return upstream;
+                    });
+                }));
+            }
+            start.countDown();
+            // The call stays in flight until every caller has joined it
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (Future<CompletableFuture<String>> future : joined) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            upstream.complete("v");
+
+            assertThat(calls).hasValue(1);
+            assertThat(results).allSatisfy(result -> assertThat(result.join()).isEqualTo("v"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}